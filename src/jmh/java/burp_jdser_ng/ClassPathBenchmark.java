@@ -0,0 +1,107 @@
+package burp_jdser_ng;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import burp_jdser_ng.ClassIndex.JarIndex;
+
+/**
+ * The work behind refreshSharedClassLoader for growing JAR sets: a cold
+ * index of every JAR, a reload answered from the persisted index by
+ * fingerprint, and an incremental reload where nothing changed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClassPathBenchmark {
+
+    private static final ClassIndex.Progress NO_PROGRESS = new ClassIndex.Progress() {
+        @Override
+        public void indexed(int done, int total) {
+        }
+
+        @Override
+        public void failed(URL jar, Exception e) {
+            throw new IllegalStateException("Failed to index " + jar, e);
+        }
+    };
+
+    @Param({ "10", "100", "500" })
+    public int jars;
+
+    @Param({ "200" })
+    public int classesPerJar;
+
+    private Path dir;
+    private List<URL> urls;
+    private ForkJoinPool pool;
+    private ClassIndex current;
+    private Map<String, JarIndex> stored;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("jdser-bench");
+        urls = Corpora.writeJars(dir, jars, classesPerJar);
+        pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        current = ClassIndex.build(urls, pool, NO_PROGRESS, ClassIndex.EMPTY, null, Map.of());
+        stored = new HashMap<>();
+        current.jars().forEach(jar -> stored.put(jar.fingerprint().path(), jar));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        pool.shutdownNow();
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private int publish(ClassIndex index) {
+        CodecGeneration generation = CodecGeneration.create(urls, index, Set.of());
+        generation.retire();
+        return index.size();
+    }
+
+    @Benchmark
+    public int coldReload() {
+        return publish(ClassIndex.build(urls, pool, NO_PROGRESS, ClassIndex.EMPTY, null, Map.of()));
+    }
+
+    @Benchmark
+    public int storedIndexReload() {
+        return publish(ClassIndex.build(urls, pool, NO_PROGRESS, ClassIndex.EMPTY, null, stored));
+    }
+
+    @Benchmark
+    public int unchangedReload() {
+        return publish(ClassIndex.build(urls, pool, NO_PROGRESS, current, Set.of(), stored));
+    }
+}
@@ -0,0 +1,137 @@
+package burp_jdser_ng;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The render and re-encode paths of the editors without Burp around them:
+ * stream to XML as ByteArrayToXML does it, XML back to a stream as
+ * XMLToByteArray does it, the same two paths through the compact JSON
+ * codec, the class-free structural parse, and a payload template splice.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodecBenchmark {
+
+    private static final DeserializationBudget.Limits LIMITS = new DeserializationBudget.Limits(
+            100_000, 10_000_000, 10_000_000, Long.MAX_VALUE, Long.MAX_VALUE / 2_000_000);
+
+    @Param({ "deep-50", "deep-200", "wide-100", "wide-10000", "beans-1000" })
+    public String graph;
+
+    private CodecGeneration codec;
+    private byte[] stream;
+    private String xml;
+    private ObjectCodec json;
+    private String jsonText;
+    private PayloadTemplate template;
+    private int templatePoint;
+
+    @Setup
+    public void setUp() throws Exception {
+        int size = Integer.parseInt(graph.substring(graph.indexOf('-') + 1));
+        Serializable object = switch (graph.substring(0, graph.indexOf('-'))) {
+            case "deep" -> Corpora.deepGraph(size);
+            case "wide" -> Corpora.wideGraph(size);
+            default -> Corpora.beanGraph(size);
+        };
+        codec = CodecGeneration.create(List.of(), ClassIndex.EMPTY, Set.of("java.util", "java.lang", "burp_jdser_ng"));
+        stream = Corpora.serialize(object);
+        xml = new String(deserializeToXml(), StandardCharsets.UTF_8);
+        json = codec.codec(ViewMode.JSON);
+        jsonText = new String(deserializeToJson(), StandardCharsets.UTF_8);
+        template = PayloadTemplate.compile(stream);
+        templatePoint = template.indexOf("");
+    }
+
+    @TearDown
+    public void tearDown() {
+        codec.retire();
+    }
+
+    @Benchmark
+    public byte[] deserializeToXml() throws Exception {
+        DeserializationBudget budget = new DeserializationBudget(LIMITS);
+        try (ByteArrayInputStream in = new ByteArrayInputStream(stream);
+                CustomLoaderObjectInputStream ois = codec.newObjectInputStream(in, budget);
+                PooledByteSink sink = PooledByteSink.acquire(0)) {
+            Object object = ois.readObject();
+            try (Writer writer = new InterruptibleWriter(sink.writer())) {
+                codec.xstream().toXML(object, writer);
+            }
+            return sink.toByteArray();
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeFromXml() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(stream.length);
+        try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+            oos.writeObject(codec.xstream().fromXML(xml));
+        }
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] deserializeToJson() throws Exception {
+        DeserializationBudget budget = new DeserializationBudget(LIMITS);
+        try (ByteArrayInputStream in = new ByteArrayInputStream(stream);
+                CustomLoaderObjectInputStream ois = codec.newObjectInputStream(in, budget);
+                PooledByteSink sink = PooledByteSink.acquire(0)) {
+            Object object = ois.readObject();
+            try (Writer writer = new InterruptibleWriter(sink.writer())) {
+                json.write(object, writer);
+            }
+            return sink.toByteArray();
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeFromJson() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(stream.length);
+        try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+            oos.writeObject(json.read(jsonText, new DeserializationBudget(LIMITS)));
+        }
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public StreamNode parseStructure() {
+        return StreamParser.parse(stream, 0, stream.length);
+    }
+
+    @Benchmark
+    public String renderStructure() throws IOException {
+        return StructureRenderer.render(StreamParser.parse(stream, 0, stream.length));
+    }
+
+    @Benchmark
+    public byte[] templateSplice() {
+        return template.render(templatePoint, "' OR '1'='1");
+    }
+}
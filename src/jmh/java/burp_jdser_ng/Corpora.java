@@ -0,0 +1,194 @@
+package burp_jdser_ng;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Deterministic inputs for the benchmarks. Object graphs only use JDK
+ * classes and the beans below, so they deserialize with an empty class path.
+ */
+final class Corpora {
+
+    private static final byte[] CRLF = "\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private Corpora() {
+    }
+
+    static byte[] serialize(Serializable object) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+            oos.writeObject(object);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /** A body that is not serialized: {@code size} bytes of printable text without the stream magic. */
+    static byte[] plainBody(int size) {
+        byte[] body = new byte[size];
+        Random random = new Random(size);
+        for (int i = 0; i < size; i++) {
+            body[i] = (byte) ('a' + random.nextInt(26));
+        }
+        return body;
+    }
+
+    /** A serialized body with a few leading blank lines, as some clients send it. */
+    static byte[] serializedBody(Serializable object) {
+        byte[] stream = serialize(object);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(stream.length + 4);
+        out.writeBytes(CRLF);
+        out.writeBytes(stream);
+        return out.toByteArray();
+    }
+
+    /**
+     * A multipart body with {@code parts} text parts of {@code partSize}
+     * bytes and the serialized stream in the last part.
+     */
+    static byte[] multipartBody(int parts, int partSize, Serializable object) {
+        String boundary = "----jdserbenchmark";
+        ByteArrayOutputStream out = new ByteArrayOutputStream(parts * (partSize + 128));
+        byte[] text = plainBody(partSize);
+        for (int i = 0; i < parts; i++) {
+            out.writeBytes(("--" + boundary + "\r\nContent-Disposition: form-data; name=\"field" + i
+                    + "\"\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.writeBytes(text);
+            out.writeBytes(CRLF);
+        }
+        out.writeBytes(("--" + boundary + "\r\nContent-Disposition: form-data; name=\"object\"\r\n"
+                + "Content-Type: application/x-java-serialized-object\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.writeBytes(serialize(object));
+        out.writeBytes(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        return out.toByteArray();
+    }
+
+    /** Nested maps {@code depth} levels deep, each with a couple of scalar entries. */
+    static HashMap<String, Object> deepGraph(int depth) {
+        HashMap<String, Object> root = new HashMap<>();
+        HashMap<String, Object> current = root;
+        for (int i = 0; i < depth; i++) {
+            HashMap<String, Object> child = new HashMap<>();
+            current.put("id", i);
+            current.put("name", "level-" + i);
+            current.put("child", child);
+            current = child;
+        }
+        return root;
+    }
+
+    /** A list of {@code width} small records built from JDK types. */
+    static ArrayList<Object> wideGraph(int width) {
+        ArrayList<Object> list = new ArrayList<>(width);
+        for (int i = 0; i < width; i++) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("id", (long) i);
+            item.put("name", "item-" + i);
+            item.put("tags", new ArrayList<>(List.of("a" + (i % 7), "b" + (i % 11))));
+            item.put("payload", new byte[16]);
+            list.add(item);
+        }
+        return list;
+    }
+
+    enum Status {
+        OPEN, PAID, SHIPPED
+    }
+
+    /** Plain serializable beans, as application DTOs look, for the codecs' per-field paths. */
+    static class Entity implements Serializable {
+        private static final long serialVersionUID = 1L;
+        long id;
+        String createdBy;
+    }
+
+    static final class Customer extends Entity {
+        private static final long serialVersionUID = 1L;
+        String name;
+        String email;
+        boolean active;
+    }
+
+    static final class Line implements Serializable {
+        private static final long serialVersionUID = 1L;
+        String sku;
+        int quantity;
+        double price;
+    }
+
+    static final class Order extends Entity {
+        private static final long serialVersionUID = 1L;
+        Customer customer;
+        Status status;
+        Line[] lines;
+        ArrayList<String> notes;
+    }
+
+    /** {@code count} orders shared between a tenth as many customers. */
+    static ArrayList<Order> beanGraph(int count) {
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < Math.max(1, count / 10); i++) {
+            Customer customer = new Customer();
+            customer.id = i;
+            customer.createdBy = "import";
+            customer.name = "customer-" + i;
+            customer.email = "customer-" + i + "@example.com";
+            customer.active = i % 3 != 0;
+            customers.add(customer);
+        }
+        ArrayList<Order> orders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Order order = new Order();
+            order.id = 100_000 + i;
+            order.createdBy = "web";
+            order.customer = customers.get(i % customers.size());
+            order.status = Status.values()[i % Status.values().length];
+            order.lines = new Line[1 + i % 4];
+            for (int j = 0; j < order.lines.length; j++) {
+                Line line = new Line();
+                line.sku = "SKU-" + (i * 7 + j) % 1000;
+                line.quantity = 1 + j;
+                line.price = 9.99 * (j + 1);
+                order.lines[j] = line;
+            }
+            order.notes = new ArrayList<>(List.of("note " + i));
+            orders.add(order);
+        }
+        return orders;
+    }
+
+    /**
+     * Writes {@code jars} JARs of {@code classesPerJar} empty class entries
+     * into {@code dir}. Indexing only reads the central directory, so the
+     * entries do not need to be valid class files.
+     */
+    static List<URL> writeJars(Path dir, int jars, int classesPerJar) throws IOException {
+        List<URL> urls = new ArrayList<>(jars);
+        for (int j = 0; j < jars; j++) {
+            Path jar = dir.resolve("bench-" + j + ".jar");
+            try (OutputStream file = Files.newOutputStream(jar); ZipOutputStream zip = new ZipOutputStream(file)) {
+                for (int c = 0; c < classesPerJar; c++) {
+                    zip.putNextEntry(new ZipEntry("bench/p" + j + "/sub" + (c % 10) + "/C" + c + ".class"));
+                    zip.closeEntry();
+                }
+            }
+            urls.add(jar.toUri().toURL());
+        }
+        return urls;
+    }
+}
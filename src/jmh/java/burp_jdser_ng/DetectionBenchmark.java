@@ -0,0 +1,59 @@
+package burp_jdser_ng;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import burp_jdser_ng.SerializedContentDetector.ByteRange;
+
+/**
+ * Detection of serialized content over the body shapes the editors see:
+ * plain bodies that must be rejected, serialized bodies, and multipart
+ * bodies with the stream in the last of many parts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DetectionBenchmark {
+
+    @Param({ "plain-1k", "plain-4m", "serialized-1k", "serialized-4m", "multipart-200x1k", "multipart-2000x4k" })
+    public String body;
+
+    private byte[] data;
+
+    @Setup
+    public void setUp() {
+        data = switch (body) {
+            case "plain-1k" -> Corpora.plainBody(1024);
+            case "plain-4m" -> Corpora.plainBody(4 * 1024 * 1024);
+            case "serialized-1k" -> Corpora.serializedBody(Corpora.wideGraph(8));
+            case "serialized-4m" -> Corpora.serializedBody(Corpora.wideGraph(40_000));
+            case "multipart-200x1k" -> Corpora.multipartBody(200, 1024, Corpora.wideGraph(8));
+            case "multipart-2000x4k" -> Corpora.multipartBody(2000, 4096, Corpora.wideGraph(8));
+            default -> throw new IllegalArgumentException(body);
+        };
+    }
+
+    @Benchmark
+    public ByteRange findSerializedRange() {
+        return SerializedContentDetector.findSerializedRange(data);
+    }
+
+    @Benchmark
+    public long fingerprint() {
+        return RenderCache.fingerprint(data);
+    }
+}
@@ -1,8 +1,20 @@
 package burp_jdser_ng;
 
+import java.awt.BorderLayout;
+import java.awt.CardLayout;
 import java.awt.Component;
+import java.awt.FlowLayout;
+import java.awt.event.HierarchyEvent;
+import java.lang.ref.Cleaner;
+import java.util.concurrent.CompletableFuture;
+
+import javax.swing.JComboBox;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
 
 import burp.api.montoya.MontoyaApi;
+import burp.api.montoya.core.ByteArray;
 import burp.api.montoya.http.message.HttpRequestResponse;
 import burp.api.montoya.ui.Selection;
 import burp.api.montoya.ui.editor.EditorOptions;
@@ -12,6 +24,14 @@ import burp.api.montoya.ui.editor.extension.EditorMode;
 import burp.api.montoya.ui.editor.extension.ExtensionProvidedEditor;
 import burp.api.montoya.utilities.ByteUtils;
 
+/**
+ * Common part of the request and response editors. An editor keeps no copy
+ * of the body: it reads it from the message whenever it renders or encodes.
+ * The rendering it shows is pinned against JDSer's render memory budget,
+ * and an unmodified editor that is hidden drops its rendering and renders
+ * again, normally from the cache, when it is shown. Object views use the
+ * class path profile mapped to the message's target.
+ */
 abstract class BaseEditor implements ExtensionProvidedEditor {
 
     protected final RawEditor editor;
@@ -19,7 +39,26 @@ abstract class BaseEditor implements ExtensionProvidedEditor {
     protected final ByteUtils byteUtils;
     protected HttpRequestResponse requestResponse;
 
-    protected byte[] payload;
+    private static final String RENDER_PLACEHOLDER = "Deserializing...";
+    private CompletableFuture<?> pendingRender;
+
+    private static final Cleaner CLEANER = Cleaner.create();
+    private final Pin pin;
+    /** True while the message has not been rendered because the editor is hidden. */
+    private boolean released;
+
+    /** Bodies at least this large open in the outline view unless a view was chosen explicitly. */
+    private static final int LARGE_PAYLOAD_BYTES = 1024 * 1024;
+    private static final String TEXT_CARD = "text";
+    private static final String OUTLINE_CARD = "outline";
+
+    private final JComboBox<ViewMode> viewModeBox = new JComboBox<>(ViewMode.values());
+    private boolean viewModeChosen;
+    private boolean selectingViewMode;
+    private final CardLayout cards = new CardLayout();
+    private final JPanel content = new JPanel(cards);
+    private final OutlineView outline;
+    private final JPanel panel = new JPanel(new BorderLayout());
 
     BaseEditor(MontoyaApi api, EditorCreationContext creationContext, JDSer jdSer) {
         this.jdSer = jdSer;
@@ -30,6 +69,158 @@ abstract class BaseEditor implements ExtensionProvidedEditor {
         } else {
             editor = api.userInterface().createRawEditor();
         }
+        outline = new OutlineView(creationContext.editorMode() != EditorMode.READ_ONLY);
+        pin = new Pin(jdSer);
+        CLEANER.register(this, pin);
+
+        JPanel toolbar = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        toolbar.add(new JLabel("View:"));
+        toolbar.add(viewModeBox);
+        viewModeBox.addActionListener(e -> {
+            if (selectingViewMode) {
+                return;
+            }
+            viewModeChosen = true;
+            if (requestResponse != null) {
+                render(body().getBytes());
+            }
+        });
+        content.add(editor.uiComponent(), TEXT_CARD);
+        content.add(outline.component(), OUTLINE_CARD);
+        panel.add(toolbar, BorderLayout.NORTH);
+        panel.add(content, BorderLayout.CENTER);
+        panel.addHierarchyListener(e -> {
+            if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) == 0) {
+                return;
+            }
+            if (panel.isShowing()) {
+                if (released && requestResponse != null) {
+                    render(body().getBytes());
+                }
+            } else {
+                release();
+            }
+        });
+    }
+
+    /** The body of the message this editor shows. */
+    protected abstract ByteArray body();
+
+    /**
+     * Shows a new message. While the editor is hidden, rendering waits until
+     * it is shown, so messages that are never looked at are not rendered.
+     */
+    protected void show(HttpRequestResponse requestResponse) {
+        this.requestResponse = requestResponse;
+        if (panel.isShowing()) {
+            render(body().getBytes());
+        } else {
+            cancelPendingRender();
+            clearContents();
+            released = true;
+        }
+    }
+
+    /** Drops the rendering of a hidden editor, unless it holds edits. */
+    private void release() {
+        if (released || requestResponse == null || isModified()) {
+            return;
+        }
+        cancelPendingRender();
+        clearContents();
+        released = true;
+    }
+
+    private void clearContents() {
+        editor.setContents(ByteArray.byteArrayOfLength(0));
+        outline.showMessage("");
+        pin.set(0);
+    }
+
+    private void showContents(ByteArray rendering) {
+        editor.setContents(rendering);
+        pin.set(rendering.length());
+    }
+
+    private void cancelPendingRender() {
+        if (pendingRender != null) {
+            pendingRender.cancel(true);
+            pendingRender = null;
+        }
+    }
+
+    protected ViewMode viewMode() {
+        return (ViewMode) viewModeBox.getSelectedItem();
+    }
+
+    /**
+     * Shows the rendered object for {@code data}. Cached renders are shown
+     * immediately; otherwise a placeholder is shown while the render runs in
+     * the background, and any render still running for a previous message is
+     * cancelled. Large bodies open in the outline view unless the user picked
+     * a view. Must be called on the Swing thread.
+     */
+    protected void render(byte[] data) {
+        cancelPendingRender();
+        released = false;
+
+        if (!viewModeChosen) {
+            selectingViewMode = true;
+            viewModeBox.setSelectedItem(data.length >= LARGE_PAYLOAD_BYTES ? ViewMode.OUTLINE : ViewMode.OBJECT);
+            selectingViewMode = false;
+        }
+        ViewMode mode = viewMode();
+        if (mode == ViewMode.OUTLINE) {
+            renderOutline(data);
+            return;
+        }
+
+        cards.show(content, TEXT_CARD);
+        ByteArray cached = jdSer.cachedRender(data, mode, requestResponse.httpService());
+        if (cached != null) {
+            showContents(cached);
+            return;
+        }
+
+        showContents(ByteArray.byteArray(RENDER_PLACEHOLDER));
+        CompletableFuture<ByteArray> render = jdSer.renderAsync(data, mode, requestResponse.httpService());
+        pendingRender = render;
+        render.thenAccept(xml -> SwingUtilities.invokeLater(() -> {
+            if (pendingRender == render && xml != null) {
+                pendingRender = null;
+                showContents(xml);
+            }
+        }));
+    }
+
+    private void renderOutline(byte[] data) {
+        cards.show(content, OUTLINE_CARD);
+        editor.setContents(ByteArray.byteArrayOfLength(0));
+        pin.set(0);
+        outline.showMessage(RENDER_PLACEHOLDER);
+        CompletableFuture<StreamNode> parse = jdSer.outlineAsync(data);
+        pendingRender = parse;
+        parse.thenAccept(root -> SwingUtilities.invokeLater(() -> {
+            if (pendingRender == parse && root != null) {
+                pendingRender = null;
+                outline.show(root);
+            }
+        }));
+    }
+
+    /**
+     * Encodes the edited contents back into a body: the outline and structure
+     * views patch the changed values into the original bytes, the object views
+     * re-serialize the XML or JSON.
+     */
+    protected ByteArray editedBody() {
+        if (viewMode() == ViewMode.OUTLINE) {
+            return ByteArray.byteArray(StreamPatcher.apply(body().getBytes(), outline.patches()));
+        }
+        if (viewMode() == ViewMode.STRUCTURE) {
+            return jdSer.patchStructure(body().getBytes(), editor.getContents().toString());
+        }
+        return jdSer.TextToByteArray(editor.getContents().toString(), viewMode(), requestResponse.httpService());
     }
 
     @Override
@@ -39,16 +230,48 @@ abstract class BaseEditor implements ExtensionProvidedEditor {
 
     @Override
     public Component uiComponent() {
-        return editor.uiComponent();
+        return panel;
     }
 
     @Override
     public Selection selectedData() {
+        if (viewMode() == ViewMode.OUTLINE) {
+            return null;
+        }
         return editor.selection().isPresent() ? editor.selection().get() : null;
     }
 
     @Override
     public boolean isModified() {
-        return editor.isModified();
+        return viewMode() == ViewMode.OUTLINE ? outline.isModified() : editor.isModified();
+    }
+
+    /**
+     * The bytes an editor has pinned in the render budget. Kept apart from
+     * the editor so the cleaner can unpin them if Burp drops an editor that
+     * is still showing a rendering.
+     */
+    private static final class Pin implements Runnable {
+        private final JDSer jdSer;
+        private long bytes;
+
+        Pin(JDSer jdSer) {
+            this.jdSer = jdSer;
+        }
+
+        synchronized void set(long bytes) {
+            if (this.bytes > 0) {
+                jdSer.unpinRendering(this.bytes);
+            }
+            this.bytes = bytes;
+            if (bytes > 0) {
+                jdSer.pinRendering(bytes);
+            }
+        }
+
+        @Override
+        public void run() {
+            set(0);
+        }
     }
 }
@@ -0,0 +1,484 @@
+package burp_jdser_ng;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import burp_jdser_ng.SerializedContentDetector.ByteRange;
+import burp_jdser_ng.StreamNode.Kind;
+
+/**
+ * Headless entry point that runs detection and deserialization over saved
+ * traffic without Burp: directories of raw bodies, Burp XML exports and HAR
+ * files. Every serialized body is converted on its own virtual thread, with
+ * at most {@code --threads} in flight; the reader blocks until a worker is
+ * free, so memory stays bounded however large the capture is. Results go
+ * straight to disk:
+ *
+ * <ul>
+ * <li>{@code messages/}: one XML (or stream structure) file per serialized body,
+ * sharded by the thousand</li>
+ * <li>{@code inventory.csv}: one row per serialized body with its status and classes</li>
+ * <li>{@code classes.csv}: every class seen, with the number of bodies using it</li>
+ * <li>{@code errors.log}: why a body could not be converted</li>
+ * <li>{@code metrics.csv}, {@code metrics.json}: per-stage latencies, as in the JDSer tab</li>
+ * </ul>
+ */
+public final class BatchConverter {
+
+    private static final String USAGE = """
+            Usage: BatchConverter --out <dir> [options] <input>...
+              <input>               raw body file, Burp XML export (.xml), HAR file (.har) or directory of them
+              --out <dir>           directory for the results
+              --classpath <path>    JARs, or directories of JARs, separated by '%s'
+              --allow <prefixes>    comma separated packages XStream may render besides the indexed classes
+              --threads <n>         bodies converted at the same time (default: number of CPUs)
+              --format <format>     xml (default), structure, or none for the inventory only
+              --max-body-mb <n>     skip bodies larger than this (default: 64)
+              --max-xml-mb <n>      give up on XML larger than this, 0 for no limit (default: 256)
+              --timeout-ms <n>      time budget per body (default: 10000)
+            """.formatted(File.pathSeparator);
+
+    private static final long PROGRESS_SECONDS = 5;
+    private static final int FILES_PER_SHARD = 1000;
+
+    enum Format {
+        XML, STRUCTURE, NONE
+    }
+
+    record Options(Path out, List<Path> inputs, List<URL> classPath, Set<String> packagePrefixes, int threads,
+            Format format, long maxXmlBytes, DeserializationBudget.Limits limits) {
+
+        static Options parse(String[] args) {
+            Path out = null;
+            List<Path> inputs = new ArrayList<>();
+            List<URL> classPath = new ArrayList<>();
+            Set<String> packagePrefixes = new HashSet<>();
+            int threads = Runtime.getRuntime().availableProcessors();
+            Format format = Format.XML;
+            long maxXmlMb = 256;
+            DeserializationBudget.Limits defaults = DeserializationBudget.Limits.DEFAULT;
+            long maxBodyMb = defaults.maxStreamBytes() / (1024 * 1024);
+            long timeoutMillis = defaults.timeMillis();
+
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if (!arg.startsWith("--")) {
+                    inputs.add(Path.of(arg));
+                    continue;
+                }
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + arg);
+                }
+                String value = args[++i];
+                switch (arg) {
+                    case "--out" -> out = Path.of(value);
+                    case "--classpath" -> classPath.addAll(classPathUrls(value));
+                    case "--allow" -> Arrays.stream(value.split(",")).map(String::trim)
+                            .map(p -> p.endsWith(".*") ? p.substring(0, p.length() - 2) : p)
+                            .filter(p -> !p.isEmpty()).forEach(packagePrefixes::add);
+                    case "--threads" -> threads = positive(arg, value);
+                    case "--format" -> {
+                        try {
+                            format = Format.valueOf(value.toUpperCase(Locale.ROOT));
+                        } catch (IllegalArgumentException e) {
+                            throw new IllegalArgumentException("Unknown format: " + value);
+                        }
+                    }
+                    case "--max-body-mb" -> maxBodyMb = positive(arg, value);
+                    case "--max-xml-mb" -> maxXmlMb = Math.max(0, number(arg, value));
+                    case "--timeout-ms" -> timeoutMillis = positive(arg, value);
+                    default -> throw new IllegalArgumentException("Unknown option: " + arg);
+                }
+            }
+            if (out == null) {
+                throw new IllegalArgumentException("--out is required");
+            }
+            if (inputs.isEmpty()) {
+                throw new IllegalArgumentException("No input given");
+            }
+            DeserializationBudget.Limits limits = new DeserializationBudget.Limits(defaults.maxDepth(),
+                    defaults.maxReferences(), defaults.maxArrayLength(), maxBodyMb * 1024 * 1024, timeoutMillis);
+            return new Options(out, inputs, classPath, packagePrefixes, threads, format, maxXmlMb * 1024 * 1024,
+                    limits);
+        }
+
+        private static List<URL> classPathUrls(String value) {
+            List<URL> urls = new ArrayList<>();
+            for (String entry : value.split(File.pathSeparator)) {
+                if (entry.isBlank()) {
+                    continue;
+                }
+                File file = new File(entry);
+                File[] jars = file.isDirectory() ? file.listFiles((dir, name) -> name.endsWith(".jar")) : null;
+                if (jars != null) {
+                    Arrays.sort(jars);
+                } else if (file.isFile()) {
+                    jars = new File[] { file };
+                } else {
+                    throw new IllegalArgumentException("No such JAR or directory: " + entry);
+                }
+                for (File jar : jars) {
+                    try {
+                        urls.add(jar.toURI().toURL());
+                    } catch (MalformedURLException e) {
+                        throw new IllegalArgumentException("Invalid class path entry: " + jar, e);
+                    }
+                }
+            }
+            return urls;
+        }
+
+        private static long number(String option, String value) {
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(option + " expects a number: " + value);
+            }
+        }
+
+        private static int positive(String option, String value) {
+            long number = number(option, value);
+            if (number < 1 || number > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException(option + " expects a positive number: " + value);
+            }
+            return (int) number;
+        }
+    }
+
+    private final Options options;
+    private final CodecGeneration codec;
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "JDSer-batch-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Semaphore inFlight;
+    private final Set<Path> shards = ConcurrentHashMap.newKeySet();
+    private final Map<String, LongAdder> classCounts = new ConcurrentHashMap<>();
+    private final Metrics metrics = new Metrics();
+
+    private final AtomicLong ids = new AtomicLong();
+    private final LongAdder serialized = new LongAdder();
+    private final LongAdder converted = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+
+    private Writer inventory;
+    private Writer errors;
+
+    BatchConverter(Options options, CodecGeneration codec) {
+        this.options = options;
+        this.codec = codec;
+        this.inFlight = new Semaphore(options.threads());
+        metrics.registerCache("Class resolution", () -> codec.resolver().hits(), () -> codec.resolver().misses());
+    }
+
+    public static void main(String[] args) {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(USAGE);
+            System.exit(2);
+            return;
+        }
+        CodecGeneration codec = createCodec(options);
+        try {
+            new BatchConverter(options, codec).run();
+        } catch (IOException e) {
+            System.err.println("Batch conversion failed: " + e);
+            System.exit(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Batch conversion interrupted");
+            System.exit(1);
+        } finally {
+            codec.retire();
+        }
+    }
+
+    /** Indexes the class path, reusing the extension's class index cache where the JARs are unchanged. */
+    private static CodecGeneration createCodec(Options options) {
+        Map<String, ClassIndex.JarIndex> stored;
+        try {
+            stored = new ClassIndexStore(ClassIndexStore.DEFAULT_FILE).load();
+        } catch (IOException e) {
+            System.err.println("Error reading class index cache: " + e);
+            stored = new HashMap<>();
+        }
+        ClassIndex index;
+        try (ExecutorService indexPool = Executors.newVirtualThreadPerTaskExecutor()) {
+            index = ClassIndex.build(options.classPath(), indexPool, new ClassIndex.Progress() {
+                @Override
+                public void indexed(int done, int total) {
+                }
+
+                @Override
+                public void failed(URL jar, Exception e) {
+                    System.err.println("Error indexing jar (" + jar + "): " + e);
+                }
+            }, ClassIndex.EMPTY, null, stored);
+        }
+        System.err.println("Indexed " + index.size() + " class(es) from " + index.jars().size() + " JAR(s)");
+        return CodecGeneration.create(options.classPath(), index, options.packagePrefixes());
+    }
+
+    void run() throws IOException, InterruptedException {
+        Files.createDirectories(options.out());
+        long startNanos = System.nanoTime();
+        try (Writer inventoryWriter = newWriter("inventory.csv"); Writer errorsWriter = newWriter("errors.log")) {
+            inventory = inventoryWriter;
+            errors = errorsWriter;
+            inventory.write("id,source,url,status,offset,stream_bytes,classes,output\n");
+
+            ScheduledFuture<?> progress = timer.scheduleAtFixedRate(() -> System.err.println(progressLine(startNanos)),
+                    PROGRESS_SECONDS, PROGRESS_SECONDS, TimeUnit.SECONDS);
+            TrafficReader reader = new TrafficReader(options.limits().maxStreamBytes(), new TrafficReader.Sink() {
+                @Override
+                public void accept(TrafficReader.Message message) throws InterruptedException {
+                    long id = ids.incrementAndGet();
+                    inFlight.acquire();
+                    workers.execute(() -> {
+                        try {
+                            convert(id, message);
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                }
+
+                @Override
+                public void skipped(String source, String reason) {
+                    skipped.increment();
+                    logError(0, source, reason);
+                }
+            });
+            try {
+                for (Path input : options.inputs()) {
+                    try {
+                        reader.read(input);
+                    } catch (IOException | UncheckedIOException e) {
+                        logError(0, input.toString(), "Error reading input: " + e);
+                    }
+                }
+            } finally {
+                workers.shutdown();
+                workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+                progress.cancel(false);
+                timer.shutdownNow();
+            }
+        }
+        writeClasses();
+        Files.writeString(options.out().resolve("metrics.csv"), metrics.toCsv(), StandardCharsets.UTF_8);
+        Files.writeString(options.out().resolve("metrics.json"), metrics.toJson(), StandardCharsets.UTF_8);
+        System.err.println(progressLine(startNanos));
+    }
+
+    private Writer newWriter(String name) throws IOException {
+        return Files.newBufferedWriter(options.out().resolve(name), StandardCharsets.UTF_8);
+    }
+
+    private String progressLine(long startNanos) {
+        long seconds = Math.max(1, (System.nanoTime() - startNanos) / 1_000_000_000L);
+        return String.format("%d message(s) read, %d serialized, %d converted, %d failed, %d skipped"
+                + " in %d s (%d message(s)/s)", ids.get(), serialized.sum(), converted.sum(), failed.sum(),
+                skipped.sum(), seconds, ids.get() / seconds);
+    }
+
+    private void convert(long id, TrafficReader.Message message) {
+        byte[] body = message.body();
+        ByteRange range;
+        try (Metrics.Sample sample = metrics.start(Metrics.Stage.DETECT)) {
+            range = SerializedContentDetector.findSerializedRange(body);
+            sample.succeeded();
+        }
+        if (range == null) {
+            return;
+        }
+        serialized.increment();
+        StreamNode root;
+        try (Metrics.Sample sample = metrics.start(Metrics.Stage.STRUCTURE)) {
+            root = StreamParser.parse(body, range.startInclusive(), range.endExclusive());
+            if (root.error() == null) {
+                sample.succeeded();
+            }
+        } catch (RuntimeException | StackOverflowError e) {
+            // a parser bug must not take the worker down; the message is still logged and inventoried
+            root = new StreamNode(Kind.STREAM, range.startInclusive());
+            root.setError("Failed to parse stream: " + e);
+        }
+        Set<String> classes = classNames(root);
+        classes.forEach(name -> classCounts.computeIfAbsent(name, k -> new LongAdder()).increment());
+
+        String status = root.error() == null ? "ok" : "malformed";
+        String error = root.error();
+        byte[] xml = null;
+        if (options.format() == Format.XML) {
+            DeserializationBudget budget = new DeserializationBudget(options.limits());
+            Thread worker = Thread.currentThread();
+            ScheduledFuture<?> deadline = timer.schedule(worker::interrupt, options.limits().timeMillis(),
+                    TimeUnit.MILLISECONDS);
+            try {
+                xml = codec.toXml(body, range, budget, options.maxXmlBytes(), metrics);
+                status = "ok";
+                error = null;
+            } catch (PooledByteSink.LimitExceededException e) {
+                status = "xml-limit";
+                error = "Rendered XML exceeds the limit of " + options.maxXmlBytes() + " bytes";
+            } catch (IOException | ClassNotFoundException | RuntimeException e) {
+                if (budget.isExceeded()) {
+                    status = "budget";
+                    error = budget.describe();
+                } else if (e instanceof InterruptedIOException || worker.isInterrupted()) {
+                    status = "timeout";
+                    error = "Conversion exceeded the time budget of " + options.limits().timeMillis() + " ms";
+                } else {
+                    status = e instanceof ClassNotFoundException ? "missing-class" : "error";
+                    error = "Failed to deserialize data:" + e;
+                }
+            } finally {
+                deadline.cancel(false);
+                Thread.interrupted();
+            }
+        }
+
+        String output = "";
+        try {
+            if (xml != null) {
+                output = writeOutput(id, ".xml", xml);
+            } else if (options.format() != Format.NONE) {
+                // the stream structure needs no classes, so it stands in for XML that could not be produced
+                output = writeOutput(id, ".txt", StructureRenderer.render(root).getBytes(StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            status = "error";
+            error = "Error writing output: " + e;
+        }
+
+        if (error != null) {
+            failed.increment();
+            logError(id, message.source(), error);
+        } else {
+            converted.increment();
+        }
+        String row = String.join(",", Long.toString(id), csv(message.source()), csv(message.url()), status,
+                Integer.toString(range.startInclusive()), Integer.toString(range.length()),
+                csv(String.join(";", classes)), csv(output));
+        writeLine(inventory, row);
+    }
+
+    /** Class names from the class descriptors in the stream, in name order. */
+    private static Set<String> classNames(StreamNode root) {
+        Set<String> names = new TreeSet<>();
+        Deque<StreamNode> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            StreamNode node = pending.pop();
+            if (node.kind() == Kind.CLASS_DESC && node.type() != null) {
+                names.add(node.type());
+            }
+            node.children().forEach(pending::push);
+        }
+        return names;
+    }
+
+    /** Writes one output file, sharding the files into directories of {@value #FILES_PER_SHARD}. */
+    private String writeOutput(long id, String extension, byte[] content) throws IOException {
+        Path shard = options.out().resolve("messages").resolve(String.format("%05d", id / FILES_PER_SHARD));
+        if (shards.add(shard)) {
+            Files.createDirectories(shard);
+        }
+        Path file = shard.resolve(String.format("%08d%s", id, extension));
+        Files.write(file, content);
+        return options.out().relativize(file).toString();
+    }
+
+    private void writeClasses() throws IOException {
+        List<Map.Entry<String, LongAdder>> entries = new ArrayList<>(classCounts.entrySet());
+        entries.sort(Map.Entry.<String, LongAdder>comparingByValue((a, b) -> Long.compare(b.sum(), a.sum()))
+                .thenComparing(Map.Entry.comparingByKey()));
+        try (Writer writer = newWriter("classes.csv")) {
+            writer.write("class,messages,available\n");
+            for (Map.Entry<String, LongAdder> entry : entries) {
+                writer.write(csv(entry.getKey()) + "," + entry.getValue().sum() + "," + availability(entry.getKey())
+                        + "\n");
+            }
+        }
+    }
+
+    /** Where a class would come from: the class path, the JDK, or neither. */
+    private String availability(String className) {
+        String name = className;
+        while (name.startsWith("[")) {
+            name = name.substring(1);
+        }
+        if (name.length() == 1) {
+            return "jdk";
+        }
+        if (name.startsWith("L") && name.endsWith(";")) {
+            name = name.substring(1, name.length() - 1);
+        }
+        if (codec.index().contains(name)) {
+            return "classpath";
+        }
+        try {
+            Class.forName(name, false, ClassLoader.getPlatformClassLoader());
+            return "jdk";
+        } catch (ClassNotFoundException | LinkageError e) {
+            return "missing";
+        }
+    }
+
+    private void logError(long id, String source, String message) {
+        writeLine(errors, (id > 0 ? id + "\t" : "-\t") + source + "\t" + message.replace('\n', ' '));
+    }
+
+    private static void writeLine(Writer writer, String line) {
+        synchronized (writer) {
+            try {
+                writer.write(line);
+                writer.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
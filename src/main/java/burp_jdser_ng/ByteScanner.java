@@ -0,0 +1,106 @@
+package burp_jdser_ng;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Byte searching primitives used by the detectors. Single bytes and the
+ * serialization magic are found eight bytes at a time (SWAR), longer needles
+ * use a Horspool skip table.
+ */
+final class ByteScanner {
+
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class,
+            ByteOrder.LITTLE_ENDIAN);
+
+    private static final long LOW_BITS = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    private ByteScanner() {
+    }
+
+    /** Returns a word whose high bit is set in every byte lane equal to {@code value}. */
+    private static long matchLanes(long word, long pattern) {
+        long x = word ^ pattern;
+        return (x - LOW_BITS) & ~x & HIGH_BITS;
+    }
+
+    static int indexOf(byte[] data, byte value, int startInclusive, int endExclusive) {
+        int i = Math.max(0, startInclusive);
+        long pattern = (value & 0xFFL) * LOW_BITS;
+        for (; i + Long.BYTES <= endExclusive; i += Long.BYTES) {
+            long lanes = matchLanes((long) LONGS.get(data, i), pattern);
+            if (lanes != 0) {
+                return i + (Long.numberOfTrailingZeros(lanes) >>> 3);
+            }
+        }
+        for (; i < endExclusive; i++) {
+            if (data[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Finds the first {@code 0xACED} stream magic in the range. */
+    static int indexOfMagic(byte[] data, int startInclusive, int endExclusive) {
+        byte first = SerializedContentDetector.SERIALIZE_MAGIC[0];
+        byte second = SerializedContentDetector.SERIALIZE_MAGIC[1];
+        int i = Math.max(0, startInclusive);
+        while (true) {
+            i = indexOf(data, first, i, endExclusive - 1);
+            if (i < 0) {
+                return -1;
+            }
+            if (data[i + 1] == second) {
+                return i;
+            }
+            i++;
+        }
+    }
+
+    static int indexOf(byte[] data, byte[] needle, int startInclusive, int endExclusive) {
+        if (data == null || needle == null || needle.length == 0) {
+            return -1;
+        }
+        if (needle.length == 1) {
+            return indexOf(data, needle[0], startInclusive, endExclusive);
+        }
+        if (endExclusive - Math.max(0, startInclusive) < needle.length) {
+            return -1;
+        }
+
+        int last = needle.length - 1;
+        int[] skip = new int[256];
+        Arrays.fill(skip, needle.length);
+        for (int j = 0; j < last; j++) {
+            skip[needle[j] & 0xFF] = last - j;
+        }
+
+        int i = Math.max(0, startInclusive);
+        int lastStart = endExclusive - needle.length;
+        while (i <= lastStart) {
+            byte tail = data[i + last];
+            if (tail == needle[last] && regionMatches(data, i, needle, last)) {
+                return i;
+            }
+            i += skip[tail & 0xFF];
+        }
+        return -1;
+    }
+
+    static boolean startsWith(byte[] data, int offset, int endExclusive, byte[] prefix) {
+        return offset >= 0 && offset + prefix.length <= endExclusive && regionMatches(data, offset, prefix, prefix.length);
+    }
+
+    private static boolean regionMatches(byte[] data, int offset, byte[] needle, int length) {
+        for (int j = 0; j < length; j++) {
+            if (data[offset + j] != needle[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,154 @@
+package burp_jdser_ng;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Names of the classes available on the configured class path, read from
+ * the JAR central directories only. Nothing is loaded while indexing; the
+ * class loader loads a class the first time a stream or XStream needs it.
+ */
+final class ClassIndex {
+
+    static final ClassIndex EMPTY = new ClassIndex(List.of());
+
+    interface Progress {
+        void indexed(int done, int total);
+
+        void failed(URL jar, Exception e);
+    }
+
+    /**
+     * Classes of one JAR. Serial version UIDs are filled in as streams
+     * referencing the classes are read.
+     */
+    record JarIndex(URL jar, JarFingerprint fingerprint, List<String> classNames,
+            Map<String, Long> serialVersionUids) {
+    }
+
+    private final List<JarIndex> jars;
+    private final Map<String, JarIndex> jarByClass;
+
+    ClassIndex(List<JarIndex> jars) {
+        this.jars = List.copyOf(jars);
+        Map<String, JarIndex> byClass = new HashMap<>();
+        jars.forEach(jar -> jar.classNames().forEach(name -> byClass.putIfAbsent(name, jar)));
+        this.jarByClass = Collections.unmodifiableMap(byClass);
+    }
+
+    /**
+     * Indexes the JARs concurrently on {@code pool} and merges the results in
+     * class path order, so earlier JARs win for duplicate class names just
+     * like they do in the class loader. JARs of {@code current} that are not
+     * listed in {@code changed} are reused without touching the disk; a null
+     * {@code changed} re-checks every JAR. Checked JARs whose fingerprint
+     * matches an entry in {@code stored} are reused without being opened.
+     */
+    static ClassIndex build(List<URL> jars, ExecutorService pool, Progress progress, ClassIndex current,
+            Set<URL> changed, Map<String, JarIndex> stored) {
+        Map<URL, JarIndex> currentByUrl = new HashMap<>();
+        current.jars().forEach(jar -> currentByUrl.put(jar.jar(), jar));
+
+        AtomicInteger done = new AtomicInteger();
+        List<CompletableFuture<JarIndex>> pending = new ArrayList<>(jars.size());
+        for (URL jar : jars) {
+            JarIndex unchanged = changed == null || changed.contains(jar) ? null : currentByUrl.get(jar);
+            if (unchanged != null) {
+                progress.indexed(done.incrementAndGet(), jars.size());
+                pending.add(CompletableFuture.completedFuture(unchanged));
+                continue;
+            }
+            pending.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    File file = new File(jar.toURI());
+                    JarFingerprint fingerprint = JarFingerprint.of(file);
+                    JarIndex cached = stored.get(fingerprint.path());
+                    if (cached != null && cached.fingerprint().equals(fingerprint)) {
+                        return new JarIndex(jar, fingerprint, cached.classNames(), cached.serialVersionUids());
+                    }
+                    return new JarIndex(jar, fingerprint, indexJar(file), new ConcurrentHashMap<>());
+                } catch (IOException | URISyntaxException e) {
+                    progress.failed(jar, e);
+                    return null;
+                } finally {
+                    progress.indexed(done.incrementAndGet(), jars.size());
+                }
+            }, pool));
+        }
+
+        List<JarIndex> indexed = new ArrayList<>(jars.size());
+        for (CompletableFuture<JarIndex> jar : pending) {
+            JarIndex index = jar.join();
+            if (index != null) {
+                indexed.add(index);
+            }
+        }
+        return new ClassIndex(indexed);
+    }
+
+    /** Lists the class names in a JAR without loading any of them. */
+    static List<String> indexJar(File jarFile) throws IOException {
+        List<String> names = new ArrayList<>();
+        try (ZipFile jar = new ZipFile(jarFile)) {
+            Enumeration<? extends ZipEntry> entries = jar.entries();
+            while (entries.hasMoreElements()) {
+                String className = toClassName(entries.nextElement().getName());
+                if (className != null) {
+                    names.add(className);
+                }
+            }
+        }
+        return List.copyOf(names);
+    }
+
+    private static String toClassName(String entryName) {
+        if (!entryName.endsWith(".class") || entryName.startsWith("META-INF/")
+                || entryName.endsWith("module-info.class") || entryName.endsWith("package-info.class")) {
+            return null;
+        }
+        return entryName.substring(0, entryName.length() - 6).replace('/', '.');
+    }
+
+    boolean contains(String className) {
+        return jarByClass.containsKey(className);
+    }
+
+    URL jarOf(String className) {
+        JarIndex jar = jarByClass.get(className);
+        return jar == null ? null : jar.jar();
+    }
+
+    void recordSerialVersionUid(String className, long serialVersionUid) {
+        JarIndex jar = jarByClass.get(className);
+        if (jar != null) {
+            jar.serialVersionUids().put(className, serialVersionUid);
+        }
+    }
+
+    Set<String> classNames() {
+        return jarByClass.keySet();
+    }
+
+    List<JarIndex> jars() {
+        return jars;
+    }
+
+    int size() {
+        return jarByClass.size();
+    }
+}
@@ -0,0 +1,134 @@
+package burp_jdser_ng;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import burp_jdser_ng.ClassIndex.JarIndex;
+
+/**
+ * Binary on-disk cache of per-JAR class indexes, keyed by JAR path and
+ * checked against the JAR fingerprint before reuse. Class names are grouped
+ * by package to keep the file small.
+ */
+final class ClassIndexStore {
+
+    private static final int MAGIC = 0x4A445349; // "JDSI"
+    private static final int VERSION = 1;
+    private static final long NO_SUID = 0L;
+
+    /**
+     * Cache file shared by the extension and the batch converter. It lives
+     * in the user's home rather than in Burp's extension data: that storage
+     * belongs to one project and is not reachable from the headless batch
+     * converter, while JAR indexes are valid across projects.
+     */
+    static final Path DEFAULT_FILE = Path.of(System.getProperty("user.home"), ".jdser-ng", "class-index.bin");
+
+    private final Path file;
+
+    ClassIndexStore(Path file) {
+        this.file = file;
+    }
+
+    /** Returns the stored JAR indexes by absolute path, or an empty map. */
+    Map<String, JarIndex> load() throws IOException {
+        Map<String, JarIndex> jars = new HashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return jars;
+            }
+            int jarCount = in.readInt();
+            for (int i = 0; i < jarCount; i++) {
+                URL jar = URI.create(in.readUTF()).toURL();
+                JarFingerprint fingerprint = new JarFingerprint(in.readUTF(), in.readLong(), in.readLong(),
+                        in.readLong());
+                List<String> classNames = new ArrayList<>();
+                Map<String, Long> serialVersionUids = new ConcurrentHashMap<>();
+                int packageCount = in.readInt();
+                for (int p = 0; p < packageCount; p++) {
+                    String packageName = in.readUTF();
+                    String prefix = packageName.isEmpty() ? "" : packageName + ".";
+                    int classCount = in.readInt();
+                    for (int c = 0; c < classCount; c++) {
+                        String className = prefix + in.readUTF();
+                        long serialVersionUid = in.readLong();
+                        classNames.add(className);
+                        if (in.readBoolean()) {
+                            serialVersionUids.put(className, serialVersionUid);
+                        }
+                    }
+                }
+                jars.put(fingerprint.path(),
+                        new JarIndex(jar, fingerprint, List.copyOf(classNames), serialVersionUids));
+            }
+        } catch (NoSuchFileException e) {
+            return jars;
+        }
+        return jars;
+    }
+
+    /**
+     * Writes the index to a temp file of its own and moves it into place, so
+     * concurrent writers (another Burp instance or the batch converter) never
+     * interleave; the last move wins.
+     */
+    void save(ClassIndex index) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path temp = Files.createTempFile(file.getParent(), file.getFileName() + ".", ".tmp");
+        try {
+            write(index, temp);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void write(ClassIndex index, Path temp) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(index.jars().size());
+            for (JarIndex jar : index.jars()) {
+                out.writeUTF(jar.jar().toString());
+                out.writeUTF(jar.fingerprint().path());
+                out.writeLong(jar.fingerprint().size());
+                out.writeLong(jar.fingerprint().lastModified());
+                out.writeLong(jar.fingerprint().contentHash());
+
+                Map<String, List<String>> byPackage = new LinkedHashMap<>();
+                for (String className : jar.classNames()) {
+                    int dot = className.lastIndexOf('.');
+                    byPackage.computeIfAbsent(dot < 0 ? "" : className.substring(0, dot), k -> new ArrayList<>())
+                            .add(className.substring(dot + 1));
+                }
+                out.writeInt(byPackage.size());
+                for (Map.Entry<String, List<String>> pkg : byPackage.entrySet()) {
+                    String prefix = pkg.getKey().isEmpty() ? "" : pkg.getKey() + ".";
+                    out.writeUTF(pkg.getKey());
+                    out.writeInt(pkg.getValue().size());
+                    for (String simpleName : pkg.getValue()) {
+                        Long serialVersionUid = jar.serialVersionUids().get(prefix + simpleName);
+                        out.writeUTF(simpleName);
+                        out.writeLong(serialVersionUid == null ? NO_SUID : serialVersionUid);
+                        out.writeBoolean(serialVersionUid != null);
+                    }
+                }
+            }
+        }
+    }
+}
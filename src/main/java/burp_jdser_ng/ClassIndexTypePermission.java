@@ -0,0 +1,44 @@
+package burp_jdser_ng;
+
+import java.util.Set;
+
+import com.thoughtworks.xstream.security.TypePermission;
+
+/**
+ * XStream permission that allows every class of the current class index
+ * plus any class under a configured package prefix. Each codec generation
+ * registers exactly one, instead of appending permissions per class, so a
+ * type check is a hash lookup per package level regardless of how many
+ * classes are allowed.
+ */
+final class ClassIndexTypePermission implements TypePermission {
+
+    private final ClassIndex index;
+    private final Set<String> packagePrefixes;
+
+    ClassIndexTypePermission(ClassIndex index, Set<String> packagePrefixes) {
+        this.index = index;
+        this.packagePrefixes = Set.copyOf(packagePrefixes);
+    }
+
+    @Override
+    public boolean allows(@SuppressWarnings("rawtypes") Class type) {
+        if (type == null) {
+            return false;
+        }
+        String name = type.getName();
+        if (index.contains(name)) {
+            return true;
+        }
+
+        if (packagePrefixes.isEmpty()) {
+            return false;
+        }
+        for (int dot = name.lastIndexOf('.'); dot > 0; dot = name.lastIndexOf('.', dot - 1)) {
+            if (packagePrefixes.contains(name.substring(0, dot))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
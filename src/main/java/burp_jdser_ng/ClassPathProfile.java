@@ -0,0 +1,100 @@
+package burp_jdser_ng;
+
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import burp.api.montoya.http.HttpService;
+
+/**
+ * A named class path used for the targets it is mapped to. Host patterns
+ * are a host name, {@code *.domain} for any subdomain, or {@code *} for
+ * every host, each optionally followed by {@code :port}.
+ */
+record ClassPathProfile(String name, List<String> hostPatterns, List<URL> jars) {
+
+    ClassPathProfile {
+        hostPatterns = List.copyOf(hostPatterns);
+        jars = List.copyOf(jars);
+    }
+
+    boolean matches(HttpService service) {
+        String host = service.host().toLowerCase(Locale.ROOT);
+        for (String pattern : hostPatterns) {
+            if (matches(pattern.toLowerCase(Locale.ROOT), host, service.port())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matches(String pattern, String host, int port) {
+        int colon = pattern.lastIndexOf(':');
+        if (colon > 0 && pattern.indexOf(']') < colon) {
+            try {
+                if (Integer.parseInt(pattern.substring(colon + 1)) != port) {
+                    return false;
+                }
+            } catch (NumberFormatException e) {
+                return false;
+            }
+            pattern = pattern.substring(0, colon);
+        }
+        if (pattern.equals("*")) {
+            return true;
+        }
+        if (pattern.startsWith("*.")) {
+            return host.endsWith(pattern.substring(1));
+        }
+        return host.equals(pattern);
+    }
+
+    /** One profile per line: name, host patterns separated by commas and JAR URLs separated by semicolons. */
+    static String encode(List<ClassPathProfile> profiles) {
+        StringBuilder out = new StringBuilder();
+        for (ClassPathProfile profile : profiles) {
+            out.append(profile.name()).append('\t').append(String.join(",", profile.hostPatterns())).append('\t');
+            profile.jars().forEach(jar -> out.append(jar).append(';'));
+            out.append('\n');
+        }
+        return out.toString();
+    }
+
+    /** Reads the output of {@link #encode}, skipping JAR URLs that no longer parse. */
+    static List<ClassPathProfile> decode(String encoded) {
+        List<ClassPathProfile> profiles = new ArrayList<>();
+        for (String line : encoded.split("\n")) {
+            String[] fields = line.split("\t", -1);
+            if (fields.length != 3 || fields[0].isBlank()) {
+                continue;
+            }
+            List<URL> jars = new ArrayList<>();
+            for (String url : fields[2].split(";")) {
+                if (url.isEmpty()) {
+                    continue;
+                }
+                try {
+                    jars.add(new URI(url).toURL());
+                } catch (URISyntaxException | MalformedURLException | IllegalArgumentException e) {
+                    // dropped; the profile is saved again without it
+                }
+            }
+            profiles.add(new ClassPathProfile(fields[0], splitPatterns(fields[1]), jars));
+        }
+        return profiles;
+    }
+
+    static List<String> splitPatterns(String patterns) {
+        List<String> result = new ArrayList<>();
+        for (String pattern : patterns.split("[,\\s]+")) {
+            if (!pattern.isEmpty()) {
+                result.add(pattern);
+            }
+        }
+        return result;
+    }
+}
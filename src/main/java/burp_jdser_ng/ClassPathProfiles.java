@@ -0,0 +1,179 @@
+package burp_jdser_ng;
+
+import java.net.URL;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+import burp.api.montoya.http.HttpService;
+
+/**
+ * The configured class path profiles and the codec generations built for
+ * them. A profile's generation is built the first time a message of one of
+ * its targets is rendered and then reused, so moving between targets does
+ * not reload anything. At most {@link #MAX_LOADED} profiles are kept
+ * loaded; the least recently used one is retired when another is needed,
+ * and its loader closes once the last render using it is done.
+ */
+final class ClassPathProfiles {
+
+    static final int MAX_LOADED = 4;
+
+    private record Loaded(ClassPathProfile profile, CompletableFuture<CodecGeneration> generation) {
+    }
+
+    private final Function<ClassPathProfile, CompletableFuture<CodecGeneration>> builder;
+    private volatile List<ClassPathProfile> profiles = List.of();
+    private final Map<String, Loaded> loaded = new LinkedHashMap<>(16, 0.75f, true); // guarded by this
+
+    ClassPathProfiles(Function<ClassPathProfile, CompletableFuture<CodecGeneration>> builder) {
+        this.builder = builder;
+    }
+
+    List<ClassPathProfile> profiles() {
+        return profiles;
+    }
+
+    /** Replaces the profiles; loaded profiles that were removed or changed are retired. */
+    synchronized void setProfiles(List<ClassPathProfile> profiles) {
+        this.profiles = List.copyOf(profiles);
+        loaded.values().removeIf(entry -> {
+            if (profiles.contains(entry.profile())) {
+                return false;
+            }
+            retire(entry);
+            return true;
+        });
+    }
+
+    /** The first profile mapped to {@code service}, or null for the default class path. */
+    ClassPathProfile match(HttpService service) {
+        if (service == null) {
+            return null;
+        }
+        for (ClassPathProfile profile : profiles) {
+            if (profile.matches(service)) {
+                return profile;
+            }
+        }
+        return null;
+    }
+
+    /** The generation of {@code profile} if it is loaded, without building or pinning it; otherwise null. */
+    synchronized CodecGeneration peek(ClassPathProfile profile) {
+        Loaded entry = loaded.get(profile.name());
+        if (entry == null || !entry.profile().equals(profile) || !entry.generation().isDone()
+                || entry.generation().isCompletedExceptionally()) {
+            return null;
+        }
+        return entry.generation().join();
+    }
+
+    /**
+     * Pins the generation of {@code profile}, building it first if it is not
+     * loaded. Callers must release it when done. Waiting for a build is
+     * interruptible and ends with a {@link CancellationException}.
+     */
+    CodecGeneration acquire(ClassPathProfile profile) {
+        while (true) {
+            CompletableFuture<CodecGeneration> future = load(profile);
+            CodecGeneration generation;
+            try {
+                generation = future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Interrupted while loading class path profile " + profile.name());
+            } catch (ExecutionException e) {
+                synchronized (this) {
+                    loaded.remove(profile.name(), new Loaded(profile, future));
+                }
+                throw new IllegalStateException("Failed to load class path profile " + profile.name(), e.getCause());
+            }
+            if (generation.tryAcquire()) {
+                return generation;
+            }
+            // retired while we waited; load it again
+        }
+    }
+
+    /**
+     * As {@link #acquire}, but never waits: returns null and starts loading
+     * the profile in the background if it is not loaded. For the Swing
+     * thread.
+     */
+    CodecGeneration acquireIfLoaded(ClassPathProfile profile) {
+        CompletableFuture<CodecGeneration> future = load(profile);
+        if (!future.isDone() || future.isCompletedExceptionally()) {
+            return null;
+        }
+        CodecGeneration generation = future.join();
+        return generation.tryAcquire() ? generation : null;
+    }
+
+    /**
+     * The generation of {@code profile}, completed once it is built. Starts
+     * building it if it is not loaded, or if its last build failed.
+     */
+    synchronized CompletableFuture<CodecGeneration> load(ClassPathProfile profile) {
+        Loaded entry = loaded.get(profile.name());
+        if (entry != null && entry.profile().equals(profile) && !isRetired(entry)
+                && !entry.generation().isCompletedExceptionally()) {
+            return entry.generation();
+        }
+        if (entry != null) {
+            retire(entry);
+        }
+        entry = new Loaded(profile, builder.apply(profile));
+        loaded.put(profile.name(), entry);
+        Iterator<Loaded> eldest = loaded.values().iterator();
+        while (loaded.size() > MAX_LOADED) {
+            retire(eldest.next());
+            eldest.remove();
+        }
+        return entry.generation();
+    }
+
+    private static boolean isRetired(Loaded entry) {
+        CompletableFuture<CodecGeneration> generation = entry.generation();
+        return generation.isDone() && !generation.isCompletedExceptionally() && generation.join().isRetired();
+    }
+
+    /**
+     * Retires the loaded profiles that use any of {@code changedJars}, or
+     * all of them for null; they are rebuilt when next needed.
+     */
+    synchronized void invalidate(Set<URL> changedJars) {
+        loaded.values().removeIf(entry -> {
+            if (changedJars != null && entry.profile().jars().stream().noneMatch(changedJars::contains)) {
+                return false;
+            }
+            retire(entry);
+            return true;
+        });
+    }
+
+    /** Whether the generation of the profile named {@code name} is built; does not count as a use. */
+    synchronized boolean isLoaded(String name) {
+        for (Loaded entry : loaded.values()) {
+            if (entry.profile().name().equals(name)) {
+                return entry.generation().isDone() && !entry.generation().isCompletedExceptionally();
+            }
+        }
+        return false;
+    }
+
+    synchronized void retireAll() {
+        loaded.values().forEach(ClassPathProfiles::retire);
+        loaded.clear();
+    }
+
+    private static void retire(Loaded entry) {
+        entry.generation().thenAccept(CodecGeneration::retire);
+    }
+}
@@ -0,0 +1,89 @@
+package burp_jdser_ng;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caches class lookups for one codec generation, including failures. A
+ * missing class makes the loader search every JAR and build an exception,
+ * so misses are remembered and answered with a new exception for later
+ * lookups of the same name. Class names come from the target's streams,
+ * so only the most recently missed names are kept.
+ */
+final class ClassResolver {
+
+    private static final Map<String, Class<?>> PRIMITIVES = Map.of(
+            "boolean", boolean.class, "byte", byte.class, "char", char.class, "short", short.class,
+            "int", int.class, "long", long.class, "float", float.class, "double", double.class,
+            "void", void.class);
+
+    static final int MAX_MISSING = 4096;
+
+    /** Marks a name that was missed without a linkage error behind it. */
+    private static final Object NOT_FOUND = new Object();
+
+    private final ClassLoader loader;
+    private final ConcurrentHashMap<String, Class<?>> resolved = new ConcurrentHashMap<>();
+    private final Map<String, Object> missing = new LinkedHashMap<>(64, 0.75f, true) { // guarded by itself
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+            return size() > MAX_MISSING;
+        }
+    };
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    ClassResolver(ClassLoader loader) {
+        this.loader = loader;
+    }
+
+    Class<?> resolve(String name) throws ClassNotFoundException {
+        Class<?> primitive = PRIMITIVES.get(name);
+        if (primitive != null) {
+            return primitive;
+        }
+
+        Class<?> cached = resolved.get(name);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        Object failure;
+        synchronized (missing) {
+            failure = missing.get(name);
+        }
+        if (failure != null) {
+            hits.increment();
+            throw new ClassNotFoundException(name, failure instanceof Throwable cause ? cause : null);
+        }
+
+        misses.increment();
+        try {
+            Class<?> loaded = Class.forName(name, false, loader);
+            resolved.putIfAbsent(name, loaded);
+            return loaded;
+        } catch (ClassNotFoundException e) {
+            remember(name, NOT_FOUND);
+            throw e;
+        } catch (LinkageError e) {
+            remember(name, e);
+            throw new ClassNotFoundException(name, e);
+        }
+    }
+
+    private void remember(String name, Object failure) {
+        synchronized (missing) {
+            missing.put(name, failure);
+        }
+    }
+
+    long hits() {
+        return hits.sum();
+    }
+
+    long misses() {
+        return misses.sum();
+    }
+}
@@ -0,0 +1,172 @@
+package burp_jdser_ng;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.XStreamException;
+
+import burp_jdser_ng.SerializedContentDetector.ByteRange;
+
+/**
+ * Immutable bundle of everything a render or re-encode needs: the class
+ * loader with its resolution cache, the class index, and the XStream and
+ * JSON codecs configured for both, with the allowed package prefixes it
+ * was created with. A reload, or a change of the allowed packages,
+ * builds a new generation and publishes it atomically; renders hold on to
+ * the generation they started with, and the retired loader is only closed
+ * once the last of them has released it. Each class path profile has
+ * generations of its own.
+ */
+final class CodecGeneration {
+
+    private static final AtomicLong IDS = new AtomicLong();
+
+    private final long id;
+    private final URLClassLoader loader;
+    private final ClassResolver resolver;
+    private final ClassIndex index;
+    private final ClassIndexTypePermission permission;
+    private final XStream xstream;
+    private final ObjectCodec xmlCodec;
+    private final ObjectCodec jsonCodec;
+
+    private int users;
+    private boolean retired;
+    private boolean closed;
+
+    private CodecGeneration(URLClassLoader loader, ClassIndex index, Set<String> packagePrefixes) {
+        this.id = IDS.incrementAndGet();
+        this.loader = loader;
+        this.resolver = new ClassResolver(loader);
+        this.index = index;
+        this.permission = new ClassIndexTypePermission(index, packagePrefixes);
+        this.xstream = new XStream();
+        this.xstream.setClassLoader(loader);
+        this.xstream.addPermission(permission);
+        this.xmlCodec = new XStreamCodec(xstream);
+        this.jsonCodec = new JsonObjectCodec(resolver, index, permission, xstream.getReflectionProvider());
+    }
+
+    static CodecGeneration create(List<URL> urls, ClassIndex index, Set<String> packagePrefixes) {
+        return new CodecGeneration(new URLClassLoader(urls.toArray(URL[]::new)), index, packagePrefixes);
+    }
+
+    long id() {
+        return id;
+    }
+
+    ClassLoader classLoader() {
+        return loader;
+    }
+
+    ClassResolver resolver() {
+        return resolver;
+    }
+
+    ClassIndex index() {
+        return index;
+    }
+
+    XStream xstream() {
+        return xstream;
+    }
+
+    /** The codec behind an object view: compact JSON for {@link ViewMode#JSON}, XStream otherwise. */
+    ObjectCodec codec(ViewMode mode) {
+        return mode == ViewMode.JSON ? jsonCodec : xmlCodec;
+    }
+
+    CustomLoaderObjectInputStream newObjectInputStream(InputStream in, DeserializationBudget budget)
+            throws IOException {
+        return newObjectInputStream(in, budget, null);
+    }
+
+    /** As {@link #newObjectInputStream(InputStream, DeserializationBudget)}, timing class loading into {@code metrics}. */
+    CustomLoaderObjectInputStream newObjectInputStream(InputStream in, DeserializationBudget budget, Metrics metrics)
+            throws IOException {
+        return new CustomLoaderObjectInputStream(in, resolver, index, budget, metrics);
+    }
+
+    /**
+     * Deserializes {@code data[range]} and marshals the object to UTF-8 XML.
+     * Throws {@link PooledByteSink.LimitExceededException} if the XML would
+     * exceed {@code maxXmlBytes} (0 for no limit). Used by the editors and by
+     * the headless batch converter alike; both stages are timed into
+     * {@code metrics}.
+     */
+    byte[] toXml(byte[] data, ByteRange range, DeserializationBudget budget, long maxXmlBytes, Metrics metrics)
+            throws IOException, ClassNotFoundException {
+        return toText(data, range, budget, maxXmlBytes, metrics, xmlCodec);
+    }
+
+    /** As {@link #toXml}, in the format of {@code codec}. */
+    byte[] toText(byte[] data, ByteRange range, DeserializationBudget budget, long maxBytes, Metrics metrics,
+            ObjectCodec codec) throws IOException, ClassNotFoundException {
+        long start = System.nanoTime();
+        try (ByteArrayInputStream bais = new ByteArrayInputStream(data, range.startInclusive(), range.length());
+                CustomLoaderObjectInputStream ois = newObjectInputStream(bais, budget, metrics);
+                PooledByteSink sink = PooledByteSink.acquire(maxBytes)) {
+            Object obj;
+            try (Metrics.Sample read = metrics.start(Metrics.Stage.READ_OBJECT)) {
+                obj = ois.readObject();
+                read.succeeded();
+            }
+            try (Metrics.Sample marshal = metrics.start(codec.writeStage());
+                    Writer writer = new InterruptibleWriter(sink.writer())) {
+                codec.write(obj, writer);
+                marshal.succeeded();
+            } catch (IOException | XStreamException e) {
+                if (sink.isLimitExceeded()) {
+                    throw new PooledByteSink.LimitExceededException(maxBytes);
+                }
+                throw e;
+            }
+            metrics.recordMessage(range.length(), ois.resolvedClasses(),
+                    obj == null ? "null" : obj.getClass().getName(), System.nanoTime() - start);
+            return sink.toByteArray();
+        }
+    }
+
+    /** Pins this generation; returns false once it has been retired. */
+    synchronized boolean tryAcquire() {
+        if (retired) {
+            return false;
+        }
+        users++;
+        return true;
+    }
+
+    synchronized boolean isRetired() {
+        return retired;
+    }
+
+    synchronized void release() {
+        users--;
+        closeIfUnused();
+    }
+
+    /** Marks this generation as replaced; closes the loader once unused. */
+    synchronized void retire() {
+        retired = true;
+        closeIfUnused();
+    }
+
+    private void closeIfUnused() {
+        if (retired && users == 0 && !closed) {
+            closed = true;
+            try {
+                loader.close();
+            } catch (IOException e) {
+                // a failed close only leaves the JAR handles open until GC
+            }
+        }
+    }
+}
@@ -2,20 +2,59 @@ package burp_jdser_ng;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.ObjectInputFilter;
 import java.io.ObjectInputStream;
 import java.io.ObjectStreamClass;
 
 public class CustomLoaderObjectInputStream extends ObjectInputStream {
 
-    private final ClassLoader classLoader;
+    private final ClassResolver classResolver;
+    private final ClassIndex classIndex;
+    private final Metrics metrics;
+    private int resolvedClasses;
 
     public CustomLoaderObjectInputStream(InputStream inputStream, ClassLoader classLoader) throws IOException {
+        this(inputStream, new ClassResolver(classLoader), null, null, null);
+    }
+
+    CustomLoaderObjectInputStream(InputStream inputStream, ClassResolver classResolver, ClassIndex classIndex,
+            ObjectInputFilter filter, Metrics metrics) throws IOException {
         super(inputStream);
-        this.classLoader = classLoader;
+        this.classResolver = classResolver;
+        this.classIndex = classIndex;
+        this.metrics = metrics;
+        enableResolveObject(true);
+        if (filter != null) {
+            setObjectInputFilter(filter);
+        }
     }
 
     @Override
     protected Class<?> resolveClass(ObjectStreamClass objectStreamClass) throws ClassNotFoundException {
-        return Class.forName(objectStreamClass.getName(), false, classLoader);
+        resolvedClasses++;
+        long start = metrics != null ? System.nanoTime() : 0;
+        Class<?> clazz = classResolver.resolve(objectStreamClass.getName());
+        if (metrics != null) {
+            metrics.record(Metrics.Stage.CLASS_LOAD, System.nanoTime() - start);
+        }
+        if (classIndex != null) {
+            classIndex.recordSerialVersionUid(objectStreamClass.getName(), objectStreamClass.getSerialVersionUID());
+        }
+        return clazz;
+    }
+
+    /** Number of class descriptors resolved so far. */
+    int resolvedClasses() {
+        return resolvedClasses;
+    }
+
+    @Override
+    protected Object resolveObject(Object obj) throws IOException {
+        // called once per object read, lets cancelled renders stop early
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Deserialization cancelled");
+        }
+        return obj;
     }
 }
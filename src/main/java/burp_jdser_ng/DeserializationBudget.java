@@ -0,0 +1,76 @@
+package burp_jdser_ng;
+
+import java.io.ObjectInputFilter;
+
+/**
+ * Stream filter that rejects a deserialization once it exceeds any of the
+ * configured limits, and keeps statistics about how far it got so the
+ * editor can explain what happened instead of hanging.
+ */
+final class DeserializationBudget implements ObjectInputFilter {
+
+    record Limits(long maxDepth, long maxReferences, long maxArrayLength, long maxStreamBytes, long timeMillis) {
+        static final Limits DEFAULT = new Limits(100, 1_000_000, 10_000_000, 64L * 1024 * 1024, 10_000);
+    }
+
+    private final Limits limits;
+    private final long startNanos = System.nanoTime();
+    private final long deadlineNanos;
+
+    private long maxDepthSeen;
+    private long references;
+    private long streamBytes;
+    private long largestArray;
+    private String exceeded;
+
+    DeserializationBudget(Limits limits) {
+        this.limits = limits;
+        this.deadlineNanos = startNanos + limits.timeMillis() * 1_000_000L;
+    }
+
+    @Override
+    public Status checkInput(FilterInfo info) {
+        maxDepthSeen = Math.max(maxDepthSeen, info.depth());
+        references = Math.max(references, info.references());
+        streamBytes = Math.max(streamBytes, info.streamBytes());
+        largestArray = Math.max(largestArray, info.arrayLength());
+
+        if (info.depth() > limits.maxDepth()) {
+            return reject("max depth " + limits.maxDepth());
+        }
+        if (info.references() > limits.maxReferences()) {
+            return reject("max references " + limits.maxReferences());
+        }
+        if (info.arrayLength() > limits.maxArrayLength()) {
+            return reject("max array length " + limits.maxArrayLength());
+        }
+        if (info.streamBytes() > limits.maxStreamBytes()) {
+            return reject("max stream bytes " + limits.maxStreamBytes());
+        }
+        if (System.nanoTime() - deadlineNanos > 0) {
+            return reject("time budget " + limits.timeMillis() + " ms");
+        }
+        return Status.UNDECIDED;
+    }
+
+    private Status reject(String limit) {
+        if (exceeded == null) {
+            exceeded = limit;
+        }
+        return Status.REJECTED;
+    }
+
+    boolean isExceeded() {
+        return exceeded != null;
+    }
+
+    /** Describes the exceeded limit together with the statistics gathered so far. */
+    String describe() {
+        return "Deserialization budget exceeded: " + exceeded
+                + " (depth " + maxDepthSeen
+                + ", references " + references
+                + ", stream bytes " + streamBytes
+                + ", largest array " + largestArray
+                + ", elapsed " + (System.nanoTime() - startNanos) / 1_000_000L + " ms)";
+    }
+}
@@ -1,8 +1,7 @@
 package burp_jdser_ng;
 
-import javax.management.RuntimeErrorException;
-
 import burp.api.montoya.MontoyaApi;
+import burp.api.montoya.core.ByteArray;
 import burp.api.montoya.http.message.HttpRequestResponse;
 import burp.api.montoya.http.message.requests.HttpRequest;
 import burp.api.montoya.ui.editor.extension.EditorCreationContext;
@@ -16,17 +15,16 @@ class HttpRequestEditor extends BaseEditor implements ExtensionProvidedHttpReque
 
     @Override
     public boolean isEnabledFor(HttpRequestResponse requestResponse) {
-        payload = requestResponse.request().body().getBytes();
-        return jdSer.isSerialized(payload);
+        return jdSer.isSerialized(requestResponse.request().body(),
+                requestResponse.request().headerValue("Content-Type"));
     }
 
     @Override
     public HttpRequest getRequest() {
         HttpRequest request = requestResponse.request();
 
-        if (editor.isModified()) {
-            throw new RuntimeErrorException(null, editor.getContents().toString());
-            // return request.withBody(jdSer.Deserialize(editor.getContents().toString()));
+        if (isModified()) {
+            return request.withBody(editedBody());
         }
 
         return request;
@@ -34,9 +32,11 @@ class HttpRequestEditor extends BaseEditor implements ExtensionProvidedHttpReque
 
     @Override
     public void setRequestResponse(HttpRequestResponse requestResponse) {
-        this.requestResponse = requestResponse;
+        show(requestResponse);
+    }
 
-        payload = requestResponse.request().body().getBytes();
-        editor.setContents(jdSer.ByteArrayToXML(payload, jdSer.customClassLoader));
+    @Override
+    protected ByteArray body() {
+        return requestResponse.request().body();
     }
 }
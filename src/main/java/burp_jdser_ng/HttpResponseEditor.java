@@ -1,6 +1,7 @@
 package burp_jdser_ng;
 
 import burp.api.montoya.MontoyaApi;
+import burp.api.montoya.core.ByteArray;
 import burp.api.montoya.http.message.HttpRequestResponse;
 import burp.api.montoya.http.message.responses.HttpResponse;
 import burp.api.montoya.ui.editor.extension.EditorCreationContext;
@@ -15,16 +16,16 @@ class HttpResponseEditor extends BaseEditor implements ExtensionProvidedHttpResp
 
     @Override
     public boolean isEnabledFor(HttpRequestResponse requestResponse) {
-        payload = requestResponse.response().body().getBytes();
-        return jdSer.isSerialized(payload);
+        return jdSer.isSerialized(requestResponse.response().body(),
+                requestResponse.response().headerValue("Content-Type"));
     }
 
     @Override
     public HttpResponse getResponse() {
         HttpResponse response = requestResponse.response();
 
-        if (editor.isModified()) {
-            return response.withBody(jdSer.XMLToByteArray(editor.getContents().toString()));
+        if (isModified()) {
+            return response.withBody(editedBody());
         }
 
         return response;
@@ -32,9 +33,11 @@ class HttpResponseEditor extends BaseEditor implements ExtensionProvidedHttpResp
 
     @Override
     public void setRequestResponse(HttpRequestResponse requestResponse) {
-        this.requestResponse = requestResponse;
+        show(requestResponse);
+    }
 
-        payload = requestResponse.response().body().getBytes();
-        editor.setContents(jdSer.ByteArrayToXML(payload, jdSer.customClassLoader));
+    @Override
+    protected ByteArray body() {
+        return requestResponse.response().body();
     }
 }
@@ -0,0 +1,41 @@
+package burp_jdser_ng;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+
+/**
+ * Writer that aborts XStream or JSON marshalling once the rendering thread has been
+ * interrupted, so cancelled or timed-out renders stop producing output.
+ */
+final class InterruptibleWriter extends FilterWriter {
+
+    InterruptibleWriter(Writer out) {
+        super(out);
+    }
+
+    private static void checkInterrupted() throws InterruptedIOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Rendering cancelled");
+        }
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        checkInterrupted();
+        super.write(c);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        checkInterrupted();
+        super.write(cbuf, off, len);
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        checkInterrupted();
+        super.write(str, off, len);
+    }
+}
@@ -0,0 +1,136 @@
+package burp_jdser_ng;
+
+import java.awt.BorderLayout;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.function.Consumer;
+
+import javax.swing.JButton;
+import javax.swing.JFileChooser;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.Timer;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Live view of the {@link TrafficInventory}: every class seen in passing
+ * traffic with its serialVersionUID, how many messages carried it and on
+ * which endpoints, refreshed while the tab is visible.
+ */
+final class InventoryPanel extends JPanel {
+
+    private static final int REFRESH_INTERVAL_MS = 2000;
+    private static final String[] COLUMNS = { "Class", "serialVersionUID", "Messages", "Gadget hint",
+            "Endpoints" };
+
+    private final TrafficInventory inventory;
+    private final Consumer<String> errorLog;
+    private final InventoryTableModel model = new InventoryTableModel();
+    private final JLabel statusLabel = new JLabel();
+    private final Timer refreshTimer;
+
+    InventoryPanel(TrafficInventory inventory, Consumer<String> errorLog) {
+        super(new BorderLayout());
+        this.inventory = inventory;
+        this.errorLog = errorLog;
+
+        JTable table = new JTable(model);
+        table.setAutoCreateRowSorter(true);
+        add(new JScrollPane(table), BorderLayout.CENTER);
+
+        JPanel buttons = new JPanel();
+        buttons.add(statusLabel);
+        JButton clear = new JButton("Clear");
+        clear.addActionListener(e -> {
+            inventory.clear();
+            refresh();
+        });
+        buttons.add(clear);
+        JButton export = new JButton("Export CSV");
+        export.addActionListener(e -> export());
+        buttons.add(export);
+        add(buttons, BorderLayout.SOUTH);
+
+        refreshTimer = new Timer(REFRESH_INTERVAL_MS, e -> {
+            if (isShowing()) {
+                refresh();
+            }
+        });
+        refreshTimer.start();
+    }
+
+    void dispose() {
+        refreshTimer.stop();
+    }
+
+    private void refresh() {
+        model.setRows(inventory.rows());
+        statusLabel.setText(inventory.status());
+    }
+
+    private void export() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter("CSV files", "csv"));
+        chooser.setSelectedFile(new File("jdser-inventory.csv"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        try {
+            Files.writeString(chooser.getSelectedFile().toPath(), inventory.toCsv(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            errorLog.accept("Error exporting traffic inventory: " + e);
+        }
+    }
+
+    private static final class InventoryTableModel extends AbstractTableModel {
+        private List<TrafficInventory.Row> rows = List.of();
+
+        void setRows(List<TrafficInventory.Row> rows) {
+            this.rows = rows;
+            fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount() {
+            return rows.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return switch (column) {
+                case 1, 2 -> Long.class;
+                case 3 -> Boolean.class;
+                default -> String.class;
+            };
+        }
+
+        @Override
+        public Object getValueAt(int rowIndex, int column) {
+            TrafficInventory.Row row = rows.get(rowIndex);
+            return switch (column) {
+                case 0 -> row.key().name();
+                case 1 -> row.key().serialVersionUid();
+                case 2 -> row.count();
+                case 3 -> row.gadgetHint();
+                case 4 -> String.join(", ", row.endpoints());
+                default -> "";
+            };
+        }
+    }
+}
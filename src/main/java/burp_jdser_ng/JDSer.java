@@ -1,269 +1,801 @@
 package burp_jdser_ng;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.ObjectOutputStream;
-import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
-import java.net.URLClassLoader;
 import java.nio.charset.StandardCharsets;
-import java.util.Enumeration;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
-
-import com.thoughtworks.xstream.XStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.thoughtworks.xstream.XStreamException;
+
+import burp_jdser_ng.ClassIndex.JarIndex;
+import burp_jdser_ng.SerializedContentDetector.ByteRange;
 
 import burp.api.montoya.BurpExtension;
 import burp.api.montoya.MontoyaApi;
 import burp.api.montoya.core.ByteArray;
+import burp.api.montoya.http.HttpService;
 
 public class JDSer implements BurpExtension {
 
     URLTableComponent uiComponent;
-    private static final byte[] SERIALIZE_MAGIC = new byte[] { (byte) 0xAC, (byte) 0xED };
 
     MontoyaApi api;
 
-    public URLClassLoader customClassLoader = new URLClassLoader(new URL[] {});
-
-    private XStream xstream;
+    /** Set once the extension unloads; no new generation is published after that. */
+    private volatile boolean unloaded;
+    private final AtomicReference<CodecGeneration> generation = new AtomicReference<>(
+            CodecGeneration.create(List.of(), ClassIndex.EMPTY, Set.of()));
+
+    /**
+     * Structure renders do not depend on the class path; codec generation ids
+     * start at 1, and JSON renders are cached under the negated id.
+     */
+    private static final long STRUCTURE_CACHE_GENERATION = 0;
+    /** Holds every rendering, cached or shown in an editor, within the budget set in the JDSer tab. */
+    private final RenderCache renderCache = new RenderCache(URLTableComponent.DEFAULT_RENDER_MEMORY_MB * 1024L * 1024);
+
+    private static final int MAX_TEMPLATES = 64;
+    private final Map<RenderCache.Key, PayloadTemplate> templates = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<RenderCache.Key, PayloadTemplate> eldest) {
+            return size() > MAX_TEMPLATES;
+        }
+    };
+    private final LongAdder templateHits = new LongAdder();
+    private final LongAdder templateMisses = new LongAdder();
+
+    private final Metrics metrics = new Metrics();
+    private final TrafficInventory trafficInventory = new TrafficInventory();
+
+    private final ClassIndexStore classIndexStore = new ClassIndexStore(ClassIndexStore.DEFAULT_FILE);
+    private volatile Map<String, JarIndex> storedJars; // written on the reload thread only
+
+    /** Class paths of specific targets; messages of other targets use {@link #generation}. */
+    private ClassPathProfiles profiles;
+
+    private final ExecutorService renderExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService reloadExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "JDSer-reload");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final long RELOAD_DEBOUNCE_MS = 300;
+    private static final long UNLOAD_TIMEOUT_SECONDS = 5;
+    private static final long RENDER_OVERRUN_LOG_MS = 1000;
+    /**
+     * How long past the render time budget the outline parse may take before
+     * it is abandoned; the parser stops itself at the budget and returns the
+     * partial tree well within this.
+     */
+    private static final long OUTLINE_TIMEOUT_GRACE_MS = 1000;
+    private final Set<URL> pendingChangedJars = new HashSet<>(); // guarded by this
+    private boolean pendingFullReload; // guarded by this
+    private ScheduledFuture<?> pendingReload; // guarded by this
+    private JarWatcher jarWatcher; // reload thread only
+    private boolean watchJars; // reload thread only
+    private final ForkJoinPool indexPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
 
     @Override
     public void initialize(MontoyaApi api) {
         api.logging().logToOutput("[+] Loading JDSer-NG...");
         this.api = api;
-        this.uiComponent = new URLTableComponent(api);
-        this.xstream = new XStream();
+        this.profiles = new ClassPathProfiles(
+                profile -> CompletableFuture.supplyAsync(() -> loadProfile(profile), reloadExecutor));
+        this.uiComponent = new URLTableComponent(api, metrics, trafficInventory, profiles);
+        metrics.registerCache("Render cache", renderCache::hits, renderCache::misses);
+        renderCache.setMaxWeight(uiComponent.getRenderMemoryBytes());
+        uiComponent.setRenderMemoryStatus(this::renderMemoryStatus);
+        metrics.registerCache("Class resolution", () -> generation.get().resolver().hits(),
+                () -> generation.get().resolver().misses());
+        metrics.registerCache("Payload templates", templateHits::sum, templateMisses::sum);
 
         api.extension().setName("BurpJDSer-NG");
         api.userInterface().registerHttpRequestEditorProvider(new JDSerRequestEditorProvider(api, this));
         api.userInterface().registerHttpResponseEditorProvider(new JDSerResponseEditorProvider(api, this));
         api.userInterface().registerSuiteTab("JDSer", uiComponent);
+        api.intruder().registerPayloadProcessor(new JDSerPayloadProcessor(this));
+        api.scanner().registerInsertionPointProvider(new JDSerInsertionPointProvider(this));
+        api.http().registerHttpHandler(trafficInventory);
+
+        api.extension().registerUnloadingHandler(this::unload);
 
         this.uiComponent.reloadButton.addActionListener(l -> refreshSharedClassLoader());
+        this.uiComponent.setClassPathChangedListener(() -> requestReload(Set.of(), false));
+        this.uiComponent.setProfilesChangedListener(() -> reloadExecutor.execute(this::updateJarWatcher));
+        this.uiComponent.watchJarsCheckBox.addActionListener(l -> {
+            boolean selected = uiComponent.watchJarsCheckBox.isSelected();
+            reloadExecutor.execute(() -> setWatchJars(selected));
+        });
+        boolean watchJarsSelected = uiComponent.watchJarsCheckBox.isSelected();
+        reloadExecutor.execute(() -> setWatchJars(watchJarsSelected));
+        this.uiComponent.passiveIndexCheckBox.addActionListener(
+                l -> trafficInventory.setEnabled(uiComponent.passiveIndexCheckBox.isSelected()));
+        trafficInventory.setEnabled(uiComponent.passiveIndexCheckBox.isSelected());
+        this.uiComponent.renderMemorySpinner.addChangeListener(
+                l -> renderCache.setMaxWeight(uiComponent.getRenderMemoryBytes()));
+        this.uiComponent.allowedPackagesField.addActionListener(l -> {
+            profiles.invalidate(null);
+            requestReload(Set.of(), false);
+        });
         refreshSharedClassLoader();
         api.logging().logToOutput("[+] JDSer-NG loaded.");
     }
 
-    private record ByteRange(int startInclusive, int endExclusive) {
-        int length() {
-            return endExclusive - startInclusive;
+    private void unload() {
+        unloaded = true;
+        renderExecutor.shutdownNow();
+        trafficInventory.shutdown();
+        reloadExecutor.shutdownNow();
+        indexPool.shutdownNow();
+        try {
+            // a reload or profile load still running also writes the class index
+            if (!reloadExecutor.awaitTermination(UNLOAD_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                api.logging().logToError("Class path reload did not stop; the class index cache is not saved.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closeJarWatcher();
+        if (reloadExecutor.isTerminated()) {
+            saveClassIndex();
+        }
+        uiComponent.dispose();
+        renderCache.invalidateAll();
+        synchronized (templates) {
+            templates.clear();
         }
+        PooledByteSink.clearPool();
+        profiles.retireAll();
+        generation.get().retire();
     }
 
-    private static int indexOfBytes(byte[] data, byte[] needle, int startInclusive, int endExclusive) {
-        if (data == null || needle == null || needle.length == 0) {
-            return -1;
-        }
-        int lastStart = endExclusive - needle.length;
-        for (int i = Math.max(0, startInclusive); i <= lastStart; i++) {
-            boolean match = true;
-            for (int j = 0; j < needle.length; j++) {
-                if (data[i + j] != needle[j]) {
-                    match = false;
-                    break;
-                }
+    /**
+     * Pins the current codec generation. Callers must release it when done;
+     * a reload never closes a loader that is still pinned.
+     */
+    private CodecGeneration acquireGeneration() {
+        while (true) {
+            CodecGeneration current = generation.get();
+            if (current.tryAcquire()) {
+                return current;
             }
-            if (match) {
-                return i;
+            if (unloaded) {
+                throw new CancellationException("JDSer-NG has been unloaded");
             }
         }
-        return -1;
     }
 
-    private static int skipLeadingCrLf(byte[] data, int startInclusive, int endExclusive) {
-        int i = startInclusive;
-        while (i < endExclusive && (data[i] == '\r' || data[i] == '\n')) {
-            i++;
-        }
-        return i;
+    /**
+     * As {@link #acquireGeneration()}, for the profile mapped to
+     * {@code service}; loads the profile first if it is not loaded. A null
+     * service, or one no profile matches, uses the default class path.
+     */
+    private CodecGeneration acquireGeneration(HttpService service) {
+        ClassPathProfile profile = profiles.match(service);
+        return profile == null ? acquireGeneration() : profiles.acquire(profile);
     }
 
-    private static boolean hasSerializeMagicAt(byte[] data, int offset, int endExclusive) {
-        return offset >= 0
-                && offset + SERIALIZE_MAGIC.length <= endExclusive
-                && data[offset] == SERIALIZE_MAGIC[0]
-                && data[offset + 1] == SERIALIZE_MAGIC[1];
+    public boolean isSerialized(byte[] data) {
+        return findSerializedRange(data, RenderCache.key(generation.get().id(), data)) != null;
     }
 
-    private static ByteRange findSerializedRangeInMultipart(byte[] body) {
-        if (body == null || body.length < 4 || body[0] != '-' || body[1] != '-') {
-            return null;
-        }
+    public boolean isSerialized(ByteArray body, String contentType) {
+        return SerializedContentDetector.isSerialized(body, contentType,
+                data -> findSerializedRange(data, RenderCache.key(generation.get().id(), data)));
+    }
 
-        int boundaryLineEnd = indexOfBytes(body, new byte[] { '\r', '\n' }, 0, body.length);
-        if (boundaryLineEnd < 0) {
-            boundaryLineEnd = indexOfBytes(body, new byte[] { '\n' }, 0, body.length);
+    private ByteRange findSerializedRange(byte[] data, RenderCache.Key key) {
+        RenderCache.Entry cached = renderCache.get(key, data);
+        if (cached != null) {
+            return cached.range();
         }
-        if (boundaryLineEnd < 0 || boundaryLineEnd <= 2) {
-            return null;
+        ByteRange range = detect(data);
+        renderCache.putRange(key, range);
+        return range;
+    }
+
+    private ByteRange detect(byte[] data) {
+        try (Metrics.Sample sample = metrics.start(Metrics.Stage.DETECT)) {
+            ByteRange range = SerializedContentDetector.findSerializedRange(data);
+            sample.succeeded();
+            return range;
         }
+    }
 
-        String boundary = new String(body, 2, boundaryLineEnd - 2, StandardCharsets.ISO_8859_1);
-        if (boundary.isEmpty()) {
-            return null;
+    /**
+     * Re-checks every configured JAR and rebuilds the class loader and index.
+     * Runs on the reload thread; the JARs are indexed in parallel and the new
+     * codec generation is only published once indexing is complete.
+     */
+    public void refreshSharedClassLoader() {
+        requestReload(Set.of(), true);
+    }
+
+    /**
+     * Schedules a reload that re-indexes only {@code changedJars} and JARs
+     * that were added since the last reload; removed JARs are simply left
+     * out. Requests arriving within the debounce window are merged.
+     */
+    private synchronized void requestReload(Set<URL> changedJars, boolean full) {
+        pendingChangedJars.addAll(changedJars);
+        pendingFullReload |= full;
+        if (pendingReload != null) {
+            pendingReload.cancel(false);
         }
+        pendingReload = reloadExecutor.schedule(this::runPendingReload, RELOAD_DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+    }
 
-        byte[] delimiter = ("--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
-        byte[] nextBoundaryNeedle = ("\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
-        byte[] headersSepCrlf = new byte[] { '\r', '\n', '\r', '\n' };
-        byte[] headersSepLf = new byte[] { '\n', '\n' };
+    private void runPendingReload() {
+        Set<URL> changed;
+        synchronized (this) {
+            changed = pendingFullReload ? null : Set.copyOf(pendingChangedJars);
+            pendingChangedJars.clear();
+            pendingFullReload = false;
+            pendingReload = null;
+        }
+        profiles.invalidate(changed);
+        List<URL> urls = List.of(uiComponent.getURLs());
+        if (changed != null && !changed.isEmpty() && Collections.disjoint(changed, urls)) {
+            return; // only JARs of profiles changed
+        }
+        try (Metrics.Sample sample = metrics.start(Metrics.Stage.RELOAD)) {
+            reloadClassPath(urls, changed);
+            sample.succeeded();
+        }
+    }
 
-        int boundaryStart = 0;
-        while (boundaryStart >= 0 && boundaryStart < body.length) {
-            if (boundaryStart + delimiter.length > body.length) {
-                return null;
+    /** Reads the class index cache on first use. Reload thread only. */
+    private Map<String, JarIndex> storedJars() {
+        if (storedJars == null) {
+            try {
+                storedJars = new ConcurrentHashMap<>(classIndexStore.load());
+            } catch (IOException e) {
+                storedJars = new ConcurrentHashMap<>();
+                api.logging().logToError("Error reading class index cache: " + e);
             }
+        }
+        return storedJars;
+    }
 
-            // final boundary: --boundary--
-            int afterDelimiter = boundaryStart + delimiter.length;
-            if (afterDelimiter + 1 < body.length && body[afterDelimiter] == '-' && body[afterDelimiter + 1] == '-') {
-                return null;
+    private void reloadClassPath(List<URL> urls, Set<URL> changed) {
+        uiComponent.clearDiscoveredClassesLog();
+        Map<String, JarIndex> stored = storedJars();
+        generation.get().index().jars().forEach(jar -> stored.put(jar.fingerprint().path(), jar));
+
+        ClassIndex current = generation.get().index();
+        ClassIndex index = ClassIndex.build(urls, indexPool, new ClassIndex.Progress() {
+            @Override
+            public void indexed(int done, int total) {
+                uiComponent.setReloadProgress(done, total);
             }
 
-            int headersStart = boundaryStart + delimiter.length;
-            if (headersStart + 1 < body.length && body[headersStart] == '\r' && body[headersStart + 1] == '\n') {
-                headersStart += 2;
-            } else if (headersStart < body.length && body[headersStart] == '\n') {
-                headersStart += 1;
-            } else if (boundaryStart == 0) {
-                // If the body doesn't match the typical multipart format, fall back to non-multipart handling.
-                return null;
+            @Override
+            public void failed(URL jar, Exception e) {
+                String errorMsg = "Error indexing jar (" + jar + "): " + e;
+                api.logging().logToError(errorMsg);
+                uiComponent.addErrorLog(errorMsg);
             }
+        }, current, changed, stored);
+        CodecGeneration next = CodecGeneration.create(urls, index, uiComponent.getAllowedPackages());
 
-            int headersEnd = indexOfBytes(body, headersSepCrlf, headersStart, body.length);
-            int headersSepLen = 4;
-            if (headersEnd < 0) {
-                headersEnd = indexOfBytes(body, headersSepLf, headersStart, body.length);
-                headersSepLen = 2;
-            }
-            if (headersEnd < 0) {
-                return null;
-            }
+        CodecGeneration previous = generation.getAndSet(next);
+        renderCache.invalidateAll();
+        previous.retire();
 
-            int partBodyStart = headersEnd + headersSepLen;
-            int nextBoundaryNewlineIndex = indexOfBytes(body, nextBoundaryNeedle, partBodyStart, body.length);
-            if (nextBoundaryNewlineIndex < 0) {
-                return null;
-            }
+        saveClassIndex();
+        updateJarWatcher();
 
-            int partBodyEndExclusive = nextBoundaryNewlineIndex;
-            if (partBodyEndExclusive > partBodyStart && body[partBodyEndExclusive - 1] == '\r') {
-                partBodyEndExclusive--;
-            }
+        uiComponent.setDiscoveredClasses(
+                index.jars().stream().flatMap(jar -> jar.classNames().stream()).distinct().toList());
+        uiComponent.addOutputLog(
+                "Indexed " + index.size() + " class(es) from " + index.jars().size() + " JAR(s)");
+    }
+
+    /**
+     * Builds the codec generation of a profile. Runs on the reload thread,
+     * so it shares the class index cache with reloads of the default class
+     * path; JARs indexed before are read from the cache.
+     */
+    private CodecGeneration loadProfile(ClassPathProfile profile) {
+        try (Metrics.Sample sample = metrics.start(Metrics.Stage.PROFILE_LOAD)) {
+            Map<String, JarIndex> stored = storedJars();
+            ClassIndex index = ClassIndex.build(profile.jars(), indexPool, new ClassIndex.Progress() {
+                @Override
+                public void indexed(int done, int total) {
+                }
+
+                @Override
+                public void failed(URL jar, Exception e) {
+                    String errorMsg = "Error indexing jar (" + jar + ") of profile " + profile.name() + ": " + e;
+                    api.logging().logToError(errorMsg);
+                    uiComponent.addErrorLog(errorMsg);
+                }
+            }, ClassIndex.EMPTY, null, stored);
+            CodecGeneration loaded = CodecGeneration.create(profile.jars(), index, uiComponent.getAllowedPackages());
+            index.jars().forEach(jar -> stored.put(jar.fingerprint().path(), jar));
+            saveClassIndex();
+            uiComponent.addOutputLog("Loaded profile " + profile.name() + ": " + index.size() + " class(es) from "
+                    + index.jars().size() + " JAR(s)");
+            sample.succeeded();
+            return loaded;
+        }
+    }
 
-            int candidateStart = skipLeadingCrLf(body, partBodyStart, partBodyEndExclusive);
-            if (hasSerializeMagicAt(body, candidateStart, partBodyEndExclusive)) {
-                return new ByteRange(candidateStart, partBodyEndExclusive);
+    /** Applies the state of the watch checkbox, read on the EDT. Reload thread only. */
+    private void setWatchJars(boolean enabled) {
+        watchJars = enabled;
+        updateJarWatcher();
+    }
+
+    private void updateJarWatcher() {
+        if (!watchJars) {
+            closeJarWatcher();
+            return;
+        }
+        try {
+            if (jarWatcher == null) {
+                jarWatcher = new JarWatcher(changed -> requestReload(changed, false), uiComponent::addWatchedJars);
             }
+            List<URL> watched = new ArrayList<>(List.of(uiComponent.getURLs()));
+            profiles.profiles().forEach(profile -> watched.addAll(profile.jars()));
+            jarWatcher.watch(watched, uiComponent.getFolders());
+        } catch (IOException e) {
+            uiComponent.addErrorLog("Error watching JARs: " + e);
+        }
+    }
 
-            boundaryStart = nextBoundaryNewlineIndex + 1; // skip '\n', point at "--boundary"
+    private void closeJarWatcher() {
+        if (jarWatcher != null) {
+            try {
+                jarWatcher.close();
+            } catch (IOException e) {
+                api.logging().logToError("Error closing JAR watcher: " + e);
+            }
+            jarWatcher = null;
         }
+    }
 
-        return null;
+    /**
+     * Saves the JARs of the default class path and of every profile, loaded
+     * or not, so that profiles load from the cache after a restart too.
+     */
+    private void saveClassIndex() {
+        Map<String, JarIndex> jars = new LinkedHashMap<>();
+        generation.get().index().jars().forEach(jar -> jars.putIfAbsent(jar.fingerprint().path(), jar));
+        Map<String, JarIndex> stored = storedJars;
+        if (stored != null) {
+            for (ClassPathProfile profile : profiles.profiles()) {
+                for (URL url : profile.jars()) {
+                    String path = jarPath(url);
+                    JarIndex jar = path != null ? stored.get(path) : null;
+                    if (jar != null) {
+                        jars.putIfAbsent(path, jar);
+                    }
+                }
+            }
+        }
+        try {
+            classIndexStore.save(new ClassIndex(List.copyOf(jars.values())));
+        } catch (IOException e) {
+            api.logging().logToError("Error writing class index cache: " + e);
+        }
     }
 
-    private static ByteRange findSerializedRange(byte[] data) {
-        if (data == null) {
+    private static String jarPath(URL jar) {
+        try {
+            return new File(jar.toURI()).getAbsolutePath();
+        } catch (URISyntaxException | IllegalArgumentException e) {
             return null;
         }
+    }
 
-        ByteRange multipartRange = findSerializedRangeInMultipart(data);
-        if (multipartRange != null) {
-            return multipartRange;
+    /** Counts a rendering an editor is showing against the render memory budget. */
+    void pinRendering(long bytes) {
+        renderCache.pin(bytes);
+    }
+
+    void unpinRendering(long bytes) {
+        renderCache.unpin(bytes);
+    }
+
+    private String renderMemoryStatus() {
+        RenderCache.Usage usage = renderCache.usage();
+        double mb = 1024 * 1024;
+        return String.format(Locale.ROOT,
+                "Using %.1f of %.0f MB: %d cached renderings (%.1f MB), %d open editors (%.1f MB), %d reclaimed by GC",
+                (usage.cachedBytes() + usage.pinnedBytes()) / mb, usage.maxBytes() / mb, usage.renderings(),
+                usage.cachedBytes() / mb, usage.pins(), usage.pinnedBytes() / mb, usage.reclaimed());
+    }
+
+    /**
+     * Returns the rendering of this body in {@code mode} if it is already
+     * cached for the current codec generation of {@code service}, otherwise
+     * null. Never loads a profile.
+     */
+    public ByteArray cachedRender(byte[] data, ViewMode mode, HttpService service) {
+        long cacheGeneration;
+        if (mode == ViewMode.STRUCTURE) {
+            cacheGeneration = STRUCTURE_CACHE_GENERATION;
+        } else {
+            ClassPathProfile profile = profiles.match(service);
+            CodecGeneration codec = profile == null ? generation.get() : profiles.peek(profile);
+            if (codec == null) {
+                return null;
+            }
+            cacheGeneration = cacheGeneration(codec, mode);
         }
+        RenderCache.Entry cached = renderCache.probe(RenderCache.key(cacheGeneration, data), data);
+        return cached != null && cached.xml() != null ? ByteArray.byteArray(cached.xml()) : null;
+    }
 
-        int index = indexOfBytes(data, SERIALIZE_MAGIC, 0, data.length);
-        if (index < 0) {
-            return null;
+    /**
+     * Renders on a virtual thread. The future always completes with the
+     * rendering or an error message; cancelling it, or running past the
+     * configured time budget, interrupts the render. Object views use the
+     * class path profile of {@code service}, loading it if needed.
+     */
+    public CompletableFuture<ByteArray> renderAsync(byte[] data, ViewMode mode, HttpService service) {
+        ClassPathProfile profile = mode == ViewMode.STRUCTURE ? null : profiles.match(service);
+        CompletableFuture<CodecGeneration> loading = profile == null ? null : profiles.load(profile);
+        if (loading == null || loading.isDone()) {
+            return submitRender(
+                    () -> mode == ViewMode.STRUCTURE ? renderStructure(data) : ByteArrayToText(data, mode, service),
+                    errorMsg -> ByteArray.byteArray(errorMsg.getBytes(StandardCharsets.UTF_8)));
         }
-        return new ByteRange(index, data.length);
+
+        // Loading the profile does not count against the render time budget.
+        CompletableFuture<ByteArray> view = new CompletableFuture<>();
+        loading.whenComplete((loaded, e) -> {
+            if (view.isDone()) {
+                return;
+            }
+            if (e != null) {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                String errorMsg = "Failed to load class path profile " + profile.name() + ": " + cause;
+                uiComponent.addErrorLog(errorMsg);
+                view.complete(ByteArray.byteArray(errorMsg.getBytes(StandardCharsets.UTF_8)));
+                return;
+            }
+            CompletableFuture<ByteArray> render = renderAsync(data, mode, service);
+            render.whenComplete((rendering, renderError) -> view.complete(rendering));
+            view.whenComplete((rendering, viewError) -> {
+                if (view.isCancelled()) {
+                    render.cancel(true);
+                }
+            });
+        });
+        return view;
     }
 
-    public boolean isSerialized(byte[] data) {
-        return findSerializedRange(data) != null;
+    /**
+     * Parses the stream for the outline view on a virtual thread, with the
+     * same time budget and cancellation as {@link #renderAsync}. When the
+     * budget runs out the parse stops and the root holds the elements read
+     * so far, so the outline appears within the budget however large the
+     * stream is. Problems, including the truncation, are reported through
+     * {@link StreamNode#error()} on the returned root.
+     */
+    public CompletableFuture<StreamNode> outlineAsync(byte[] data) {
+        long budgetMillis = uiComponent.getRenderTimeoutMillis();
+        return submitRender(() -> parseStructure(data, budgetMillis), JDSer::errorNode,
+                budgetMillis + OUTLINE_TIMEOUT_GRACE_MS);
     }
 
-    public void refreshSharedClassLoader() {
-        uiComponent.clearDiscoveredClassesLog();
-        try {
-            uiComponent.clearDiscoveredClassesLog();
-            URL[] urlArray = uiComponent.getURLs();
-            customClassLoader.close();
-            customClassLoader = new URLClassLoader(urlArray);
-            xstream.setClassLoader(customClassLoader);
-
-            for (URL url : urlArray) {
-                findClassesInJar(url.toString(), customClassLoader);
+    /**
+     * Runs {@code render} on a virtual thread under the time budget. The
+     * interrupt of a cancelled or timed-out render is only noticed where the
+     * render checks for it: the stream filter and class resolution while
+     * reading, the writer while marshalling and the structure parser. Work
+     * between those points, such as the hashCode calls a HashMap or HashSet
+     * makes while rebuilding itself in readObject, cannot be stopped; the
+     * view is released at once, and a render that keeps running for more
+     * than {@link #RENDER_OVERRUN_LOG_MS} afterwards is logged when it ends.
+     */
+    private <T> CompletableFuture<T> submitRender(Supplier<T> render, Function<String, T> onError) {
+        return submitRender(render, onError, uiComponent.getRenderTimeoutMillis());
+    }
+
+    private <T> CompletableFuture<T> submitRender(Supplier<T> render, Function<String, T> onError,
+            long budgetMillis) {
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicLong abandonedAt = new AtomicLong();
+        Future<?> task = renderExecutor.submit(() -> {
+            try {
+                result.complete(render.get());
+            } catch (RuntimeException | StackOverflowError e) {
+                result.completeExceptionally(e);
+            } catch (Error e) {
+                result.completeExceptionally(e);
+                throw e;
+            } finally {
+                long abandoned = abandonedAt.get();
+                long overrunMillis = abandoned == 0 ? 0 : (System.nanoTime() - abandoned) / 1_000_000L;
+                if (overrunMillis > RENDER_OVERRUN_LOG_MS) {
+                    uiComponent.addErrorLog("A cancelled or timed-out render kept running for " + overrunMillis
+                            + " ms before it could be stopped.");
+                }
+            }
+        });
+        result.whenComplete((value, e) -> {
+            if (e != null) {
+                abandonedAt.set(System.nanoTime());
+                task.cancel(true);
             }
-        } catch (IOException | URISyntaxException ex) {
-            uiComponent.addErrorLog("Error refreshing class loader: " + ex);
-        }
-    }
-
-    private void findClassesInJar(String jarPath, ClassLoader classLoader) throws URISyntaxException {
-        findClassesInJar(new File(new URI(jarPath)), classLoader);
-    }
-
-    private void findClassesInJar(File jarFile, ClassLoader classLoader) {
-        try (JarFile jar = new JarFile(jarFile)) {
-            Enumeration<JarEntry> entries = jar.entries();
-            while (entries.hasMoreElements()) {
-                JarEntry entry = entries.nextElement();
-                if (entry.getName().endsWith(".class")) {
-                    String className = entry.toString().substring(0, entry.toString().length() - 6);
-                    className = className.replace('/', '.');
-                    try {
-                        Class<?> clazz = classLoader.loadClass(className);
-                        uiComponent.addDiscoveredClassLog(clazz.getName());
-                        xstream.allowTypes(new Class[] { clazz });
-                    } catch (ClassNotFoundException e) {
-                        String errorMsg = "Error loading class from jar (" + jarFile + "): " + e;
-                        api.logging().logToError(errorMsg);
-                        uiComponent.addErrorLog(errorMsg);
+        });
+
+        CompletableFuture<T> view = result.orTimeout(budgetMillis, TimeUnit.MILLISECONDS)
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof CancellationException) {
+                        return null;
                     }
-                }
+                    String errorMsg = cause instanceof TimeoutException
+                            ? "Rendering exceeded the time budget of " + budgetMillis + " ms."
+                            : "Failed to render data:" + cause;
+                    uiComponent.addErrorLog(errorMsg);
+                    return onError.apply(errorMsg);
+                });
+        view.whenComplete((value, e) -> {
+            if (view.isCancelled()) {
+                result.cancel(true);
             }
-        } catch (IOException e) {
-            uiComponent.addErrorLog("Error loading class from jar (" + jarFile + "): " + e);
+        });
+        return view;
+    }
+
+    public ByteArray ByteArrayToXML(byte[] data) {
+        return ByteArrayToText(data, ViewMode.OBJECT);
+    }
+
+    /** Renders the deserialized object with the codec of {@code mode}, XStream XML or compact JSON. */
+    public ByteArray ByteArrayToText(byte[] data, ViewMode mode) {
+        return ByteArrayToText(data, mode, null);
+    }
+
+    /** As {@link #ByteArrayToText(byte[], ViewMode)}, with the class path profile of {@code service}. */
+    public ByteArray ByteArrayToText(byte[] data, ViewMode mode, HttpService service) {
+        CodecGeneration codec = acquireGeneration(service);
+        try {
+            return ByteArrayToText(data, codec, mode);
+        } finally {
+            codec.release();
         }
     }
 
-    public ByteArray ByteArrayToXML(byte[] data, ClassLoader classloader) {
+    private static long cacheGeneration(CodecGeneration codec, ViewMode mode) {
+        return mode == ViewMode.JSON ? -codec.id() : codec.id();
+    }
 
-        ByteRange range = findSerializedRange(data);
+    private ByteArray ByteArrayToText(byte[] data, CodecGeneration codec, ViewMode mode) {
+        RenderCache.Key key = RenderCache.key(cacheGeneration(codec, mode), data);
+        RenderCache.Entry cached = renderCache.get(key, data);
+        if (cached != null && cached.xml() != null) {
+            return ByteArray.byteArray(cached.xml());
+        }
+
+        ByteRange range = cached != null ? cached.range() : detect(data);
         if (range == null) {
             String errorMsg = "No Java serialization stream found in provided data.";
             uiComponent.addErrorLog(errorMsg);
             return ByteArray.byteArray(errorMsg.getBytes(StandardCharsets.UTF_8));
         }
 
-        try (ByteArrayInputStream bais = new ByteArrayInputStream(data, range.startInclusive(), range.length());
-                CustomLoaderObjectInputStream ois = new CustomLoaderObjectInputStream(bais, classloader)) {
-            Object obj = ois.readObject();
-            return ByteArray.byteArray(xstream.toXML(obj).getBytes(StandardCharsets.UTF_8));
-        } catch (IOException | ClassNotFoundException e) {
-            String errorMsg = "Failed to deserialize data:" + e;
+        DeserializationBudget budget = new DeserializationBudget(uiComponent.getDeserializationLimits());
+        long maxXmlBytes = uiComponent.getMaxXmlBytes();
+        try {
+            byte[] text = codec.toText(data, range, budget, maxXmlBytes, metrics, codec.codec(mode));
+            renderCache.putRendered(key, range, data, text);
+            return ByteArray.byteArray(text);
+        } catch (PooledByteSink.LimitExceededException e) {
+            String errorMsg = "Rendered object exceeds the limit of " + maxXmlBytes
+                    + " bytes; use the stream structure view or raise the limit in the JDSer tab.";
+            uiComponent.addErrorLog(errorMsg);
+            return ByteArray.byteArray(errorMsg.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException | ClassNotFoundException | XStreamException e) {
+            String errorMsg = budget.isExceeded() ? budget.describe() : "Failed to deserialize data:" + e;
+            if (!Thread.currentThread().isInterrupted()) {
+                uiComponent.addErrorLog(errorMsg);
+            }
+            return ByteArray.byteArray(errorMsg.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Renders the grammar of the stream with the offset of every element.
+     * No class is loaded, so this works without any JAR on the class path
+     * and does not depend on the codec generation.
+     */
+    public ByteArray renderStructure(byte[] data) {
+        RenderCache.Key key = RenderCache.key(STRUCTURE_CACHE_GENERATION, data);
+        RenderCache.Entry cached = renderCache.get(key, data);
+        if (cached != null && cached.xml() != null) {
+            return ByteArray.byteArray(cached.xml());
+        }
+
+        ByteRange range = cached != null ? cached.range() : detect(data);
+        if (range == null) {
+            String errorMsg = "No Java serialization stream found in provided data.";
             uiComponent.addErrorLog(errorMsg);
             return ByteArray.byteArray(errorMsg.getBytes(StandardCharsets.UTF_8));
         }
+
+        try (Metrics.Sample sample = metrics.start(Metrics.Stage.STRUCTURE)) {
+            StreamNode root = StreamParser.parse(data, range.startInclusive(), range.endExclusive());
+            byte[] text = StructureRenderer.render(root).getBytes(StandardCharsets.UTF_8);
+            renderCache.putRendered(key, range, data, text);
+            if (root.error() == null) {
+                sample.succeeded();
+            }
+            return ByteArray.byteArray(text);
+        } catch (InterruptedIOException e) {
+            return ByteArray.byteArray("Rendering interrupted.".getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /** Parses for the outline, stopping after {@code budgetMillis} with the elements read so far. */
+    private StreamNode parseStructure(byte[] data, long budgetMillis) {
+        ByteRange range = detect(data);
+        if (range == null) {
+            String errorMsg = "No Java serialization stream found in provided data.";
+            uiComponent.addErrorLog(errorMsg);
+            return errorNode(errorMsg);
+        }
+        try (Metrics.Sample sample = metrics.start(Metrics.Stage.STRUCTURE)) {
+            StreamNode root = StreamParser.parse(data, range.startInclusive(), range.endExclusive(),
+                    StreamParser.DEFAULT_MAX_DEPTH, StreamParser.DEFAULT_MAX_NODES, budgetMillis);
+            if (root.error() == null) {
+                sample.succeeded();
+            }
+            return root;
+        }
+    }
+
+    private static StreamNode errorNode(String errorMsg) {
+        StreamNode root = new StreamNode(StreamNode.Kind.STREAM, 0);
+        root.setValue("(not parsed)");
+        root.setError(errorMsg);
+        return root;
+    }
+
+    /**
+     * Applies edits made in the structure view by rewriting only the bytes of
+     * the changed values in {@code data}. Returns {@code data} unchanged if
+     * the edit cannot be mapped back onto the stream.
+     */
+    public ByteArray patchStructure(byte[] data, String edited) {
+        ByteRange range = SerializedContentDetector.findSerializedRange(data);
+        if (range == null) {
+            uiComponent.addErrorLog("No Java serialization stream found in provided data.");
+            return ByteArray.byteArray(data);
+        }
+
+        try {
+            StreamNode root = StreamParser.parse(data, range.startInclusive(), range.endExclusive());
+            List<StreamPatcher.Patch> patches = StreamPatcher.diff(root, edited);
+            return ByteArray.byteArray(patches.isEmpty() ? data : StreamPatcher.apply(data, patches));
+        } catch (IllegalArgumentException e) {
+            uiComponent.addErrorLog("Failed to apply structure edit: " + e.getMessage());
+            return ByteArray.byteArray(data);
+        } catch (RuntimeException | StackOverflowError e) {
+            uiComponent.addErrorLog("Failed to apply structure edit: " + e);
+            return ByteArray.byteArray(data);
+        }
+    }
+
+    /**
+     * Returns the compiled template for {@code body}, compiling it on first
+     * use, or null if the body holds no serialization stream. Templates do
+     * not depend on the class path and are kept for the most recently used
+     * bodies, so high-rate Intruder and Scanner runs compile once. A
+     * template is only reused for a body equal to the one it was compiled
+     * from, since the fingerprint in the key can be forced to collide.
+     */
+    PayloadTemplate templateFor(byte[] body) {
+        RenderCache.Key key = RenderCache.key(STRUCTURE_CACHE_GENERATION, body);
+        synchronized (templates) {
+            PayloadTemplate template = templates.get(key);
+            if (template != null && template.isCompiledFrom(body)) {
+                templateHits.increment();
+                return template;
+            }
+        }
+        templateMisses.increment();
+        PayloadTemplate template;
+        try (Metrics.Sample sample = metrics.start(Metrics.Stage.TEMPLATE)) {
+            template = PayloadTemplate.compile(body);
+            sample.succeeded();
+        }
+        if (template != null) {
+            synchronized (templates) {
+                templates.put(key, template);
+            }
+        }
+        return template;
     }
 
     public ByteArray XMLToByteArray(String data) {
-        Object obj = xstream.fromXML(data);
+        return TextToByteArray(data, ViewMode.OBJECT);
+    }
+
+    /** Re-serializes text edited in the object view of {@code mode}. */
+    public ByteArray TextToByteArray(String data, ViewMode mode) {
+        return TextToByteArray(data, mode, null);
+    }
 
+    /**
+     * As {@link #TextToByteArray(String, ViewMode)}, with the class path
+     * profile of {@code service}. Runs on the Swing thread, so it never waits
+     * for a profile to load: if the profile was unloaded since the message
+     * was rendered, loading starts and an error asks to apply the edit again.
+     */
+    public ByteArray TextToByteArray(String data, ViewMode mode, HttpService service) {
+        CodecGeneration codec;
+        String unavailable;
+        try {
+            ClassPathProfile profile = profiles.match(service);
+            codec = profile == null ? acquireGeneration() : profiles.acquireIfLoaded(profile);
+            unavailable = codec != null ? null : "Failed to serialize data: class path profile " + profile.name()
+                    + " is loading again; apply the edit again once it is loaded.";
+        } catch (RuntimeException e) {
+            codec = null;
+            unavailable = "Failed to serialize data:" + e;
+        }
+        if (codec == null) {
+            uiComponent.addErrorLog(unavailable);
+            return ByteArray.byteArray(unavailable.getBytes(StandardCharsets.UTF_8));
+        }
+        ObjectCodec objectCodec = codec.codec(mode);
         try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
                 ObjectOutputStream oos = new ObjectOutputStream(baos)) {
-            oos.writeObject(obj);
-            oos.flush();
+            Object obj;
+            try (Metrics.Sample sample = metrics.start(objectCodec.readStage())) {
+                obj = objectCodec.read(data, new DeserializationBudget(uiComponent.getDeserializationLimits()));
+                sample.succeeded();
+            }
+            try (Metrics.Sample sample = metrics.start(Metrics.Stage.WRITE_OBJECT)) {
+                oos.writeObject(obj);
+                oos.flush();
+                sample.succeeded();
+            }
             return ByteArray.byteArray(baos.toByteArray());
-        } catch (IOException e) {
+        } catch (IOException | ClassNotFoundException | RuntimeException | StackOverflowError e) {
+            // XStreamException (malformed XML, forbidden classes) and deeply nested JSON land here too
             String errorMsg = "Failed to serialize data:" + e;
             uiComponent.addErrorLog(errorMsg);
             return ByteArray.byteArray(errorMsg.getBytes(StandardCharsets.UTF_8));
+        } finally {
+            codec.release();
         }
     }
 
@@ -0,0 +1,91 @@
+package burp_jdser_ng;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import burp_jdser_ng.PayloadTemplate.InjectionPoint;
+import burp_jdser_ng.StreamNode.Kind;
+
+import burp.api.montoya.core.ByteArray;
+import burp.api.montoya.core.Range;
+import burp.api.montoya.http.message.HttpRequestResponse;
+import burp.api.montoya.http.message.requests.HttpRequest;
+import burp.api.montoya.scanner.audit.insertionpoint.AuditInsertionPoint;
+import burp.api.montoya.scanner.audit.insertionpoint.AuditInsertionPointProvider;
+
+/**
+ * Offers every string value of a serialized request body to the scanner.
+ * Payloads are spliced into a compiled {@link PayloadTemplate}, so each
+ * scanner request costs one copy of the body.
+ */
+class JDSerInsertionPointProvider implements AuditInsertionPointProvider {
+
+    private final JDSer jdSer;
+
+    JDSerInsertionPointProvider(JDSer jdSer) {
+        this.jdSer = jdSer;
+    }
+
+    @Override
+    public List<AuditInsertionPoint> provideInsertionPoints(HttpRequestResponse baseHttpRequestResponse) {
+        HttpRequest request = baseHttpRequestResponse.request();
+        if (!jdSer.isSerialized(request.body(), request.headerValue("Content-Type"))) {
+            return List.of();
+        }
+        PayloadTemplate template = jdSer.templateFor(request.body().getBytes());
+        if (template == null) {
+            return List.of();
+        }
+
+        List<AuditInsertionPoint> insertionPoints = new ArrayList<>();
+        List<InjectionPoint> points = template.points();
+        for (int i = 0; i < points.size(); i++) {
+            if (points.get(i).kind() == Kind.STRING) {
+                insertionPoints.add(new StringInsertionPoint(request, template, i));
+            }
+        }
+        return insertionPoints;
+    }
+
+    private static final class StringInsertionPoint implements AuditInsertionPoint {
+
+        private final HttpRequest request;
+        private final PayloadTemplate template;
+        private final int index;
+
+        StringInsertionPoint(HttpRequest request, PayloadTemplate template, int index) {
+            this.request = request;
+            this.template = template;
+            this.index = index;
+        }
+
+        @Override
+        public String name() {
+            return "JDSer " + template.points().get(index).path();
+        }
+
+        @Override
+        public String baseValue() {
+            return template.points().get(index).baseValue();
+        }
+
+        @Override
+        public HttpRequest buildHttpRequestWithPayload(ByteArray payload) {
+            return request.withBody(ByteArray.byteArray(template.render(index, decode(payload))));
+        }
+
+        @Override
+        public List<Range> issueHighlights(ByteArray payload) {
+            String value = decode(payload);
+            int bodyOffset = buildHttpRequestWithPayload(payload).bodyOffset();
+            int start = bodyOffset + template.valueOffset(index, value);
+            return List.of(Range.range(start, start + template.valueLength(index, value)));
+        }
+
+        /** One char per payload byte, as Burp itself reads them; UTF-8 would replace invalid bytes with U+FFFD. */
+        private static String decode(ByteArray payload) {
+            return new String(payload.getBytes(), StandardCharsets.ISO_8859_1);
+        }
+    }
+}
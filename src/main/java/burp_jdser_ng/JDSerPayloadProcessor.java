@@ -0,0 +1,47 @@
+package burp_jdser_ng;
+
+import java.nio.charset.StandardCharsets;
+
+import burp.api.montoya.core.ByteArray;
+import burp.api.montoya.intruder.PayloadData;
+import burp.api.montoya.intruder.PayloadProcessingResult;
+import burp.api.montoya.intruder.PayloadProcessor;
+
+/**
+ * Intruder processor for a payload position that covers the serialized
+ * body. Each payload is encoded into the field configured in the JDSer tab
+ * of the position's original value, using a template compiled once per
+ * distinct base value.
+ */
+class JDSerPayloadProcessor implements PayloadProcessor {
+
+    private final JDSer jdSer;
+
+    JDSerPayloadProcessor(JDSer jdSer) {
+        this.jdSer = jdSer;
+    }
+
+    @Override
+    public String displayName() {
+        return "JDSer: inject into serialized field";
+    }
+
+    @Override
+    public PayloadProcessingResult processPayload(PayloadData payloadData) {
+        PayloadTemplate template = jdSer.templateFor(payloadData.insertionPoint().baseValue().getBytes());
+        if (template == null) {
+            return PayloadProcessingResult.usePayload(payloadData.currentPayload());
+        }
+        int point = template.indexOf(jdSer.uiComponent.getIntruderField());
+        if (point < 0) {
+            return PayloadProcessingResult.skipPayload();
+        }
+        // one char per byte, so binary and Latin-1 payloads reach the field unchanged
+        String value = new String(payloadData.currentPayload().getBytes(), StandardCharsets.ISO_8859_1);
+        try {
+            return PayloadProcessingResult.usePayload(ByteArray.byteArray(template.render(point, value)));
+        } catch (IllegalArgumentException e) {
+            return PayloadProcessingResult.skipPayload();
+        }
+    }
+}
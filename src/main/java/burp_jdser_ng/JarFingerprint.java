@@ -0,0 +1,55 @@
+package burp_jdser_ng;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * Identifies a JAR's contents cheaply. Besides path, size and mtime it
+ * hashes the ZIP central directory, which carries the CRC-32 of every entry,
+ * so content changes are noticed without reading the whole file.
+ */
+record JarFingerprint(String path, long size, long lastModified, long contentHash) {
+
+    private static final int EOCD_SIGNATURE = 0x06054b50;
+    private static final int EOCD_MIN_LENGTH = 22;
+    private static final int EOCD_MAX_COMMENT = 0xFFFF;
+
+    static JarFingerprint of(File jar) throws IOException {
+        File file = jar.getAbsoluteFile();
+        return new JarFingerprint(file.getPath(), file.length(), file.lastModified(), centralDirectoryHash(file));
+    }
+
+    private static long centralDirectoryHash(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            long length = raf.length();
+            int tailLength = (int) Math.min(length, EOCD_MIN_LENGTH + EOCD_MAX_COMMENT);
+            byte[] tail = new byte[tailLength];
+            raf.seek(length - tailLength);
+            raf.readFully(tail);
+
+            for (int i = tailLength - EOCD_MIN_LENGTH; i >= 0; i--) {
+                if (readInt(tail, i) != EOCD_SIGNATURE) {
+                    continue;
+                }
+                long cdSize = readInt(tail, i + 12) & 0xFFFFFFFFL;
+                long cdOffset = readInt(tail, i + 16) & 0xFFFFFFFFL;
+                if (cdOffset + cdSize > length || cdSize > Integer.MAX_VALUE) {
+                    break; // ZIP64 or damaged, hash the tail instead
+                }
+                byte[] centralDirectory = new byte[(int) cdSize];
+                raf.seek(cdOffset);
+                raf.readFully(centralDirectory);
+                return RenderCache.fingerprint(centralDirectory);
+            }
+            return RenderCache.fingerprint(tail);
+        }
+    }
+
+    private static int readInt(byte[] data, int offset) {
+        return (data[offset] & 0xFF)
+                | (data[offset + 1] & 0xFF) << 8
+                | (data[offset + 2] & 0xFF) << 16
+                | (data[offset + 3] & 0xFF) << 24;
+    }
+}
@@ -0,0 +1,162 @@
+package burp_jdser_ng;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Watches the directories of the configured JARs and reports which of them
+ * changed on disk, so only those need to be re-indexed. Configured folders
+ * are watched with all their subdirectories, and JARs that appear in them
+ * are reported separately so they can be added to the class path.
+ */
+final class JarWatcher implements Closeable {
+
+    private final WatchService watchService;
+    private final Consumer<Set<URL>> onChange;
+    private final Consumer<Set<Path>> onNewJars;
+    private final Map<Path, WatchKey> keys = new HashMap<>(); // guarded by this
+    private volatile Map<Path, URL> watchedJars = Map.of();
+    private volatile List<Path> watchedFolders = List.of();
+
+    JarWatcher(Consumer<Set<URL>> onChange, Consumer<Set<Path>> onNewJars) throws IOException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.onChange = onChange;
+        this.onNewJars = onNewJars;
+        Thread thread = new Thread(this::run, "JDSer-jar-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Replaces the set of watched JARs and folders. */
+    synchronized void watch(List<URL> jars, List<Path> folders) throws IOException {
+        Map<Path, URL> byPath = new HashMap<>();
+        for (URL jar : jars) {
+            try {
+                byPath.put(Path.of(jar.toURI()).toAbsolutePath().normalize(), jar);
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                // not a local file, nothing to watch
+            }
+        }
+
+        Set<Path> directories = new HashSet<>();
+        byPath.keySet().forEach(path -> directories.add(path.getParent()));
+        List<Path> normalizedFolders = folders.stream().map(folder -> folder.toAbsolutePath().normalize()).toList();
+        for (Path folder : normalizedFolders) {
+            if (Files.isDirectory(folder)) {
+                try (Stream<Path> paths = Files.walk(folder)) {
+                    paths.filter(Files::isDirectory).forEach(directories::add);
+                }
+            }
+        }
+        keys.entrySet().removeIf(entry -> {
+            if (!directories.contains(entry.getKey())) {
+                entry.getValue().cancel();
+                return true;
+            }
+            return false;
+        });
+        for (Path directory : directories) {
+            if (directory != null && !keys.containsKey(directory)) {
+                keys.put(directory, directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE));
+            }
+        }
+        watchedJars = byPath;
+        watchedFolders = normalizedFolders;
+    }
+
+    /** Starts watching a directory created below a watched folder, and returns the JARs already in it. */
+    private synchronized Set<Path> watchCreatedDirectory(Path directory) throws IOException {
+        Set<Path> jars = new HashSet<>();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.toList()) {
+                if (Files.isDirectory(path)) {
+                    if (!keys.containsKey(path)) {
+                        keys.put(path, path.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE));
+                    }
+                } else if (isJar(path)) {
+                    jars.add(path);
+                }
+            }
+        }
+        return jars;
+    }
+
+    private boolean inWatchedFolder(Path path) {
+        for (Path folder : watchedFolders) {
+            if (path.startsWith(folder)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isJar(Path path) {
+        return path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".jar");
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Path directory = (Path) key.watchable();
+                Set<URL> changed = new HashSet<>();
+                Set<Path> newJars = new HashSet<>();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (!(event.context() instanceof Path name)) {
+                        continue;
+                    }
+                    Path path = directory.resolve(name).toAbsolutePath().normalize();
+                    URL jar = watchedJars.get(path);
+                    if (jar != null) {
+                        changed.add(jar);
+                    } else if (event.kind() != ENTRY_DELETE && inWatchedFolder(path)) {
+                        if (Files.isDirectory(path)) {
+                            try {
+                                newJars.addAll(watchCreatedDirectory(path));
+                            } catch (IOException e) {
+                                // gone again, or unreadable; nothing to watch
+                            }
+                        } else if (isJar(path)) {
+                            newJars.add(path);
+                        }
+                    }
+                }
+                key.reset();
+                if (!changed.isEmpty()) {
+                    onChange.accept(changed);
+                }
+                if (!newJars.isEmpty()) {
+                    onNewJars.accept(newJars);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // watcher closed
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+}
@@ -0,0 +1,979 @@
+package burp_jdser_ng;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamField;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.io.StringReader;
+import java.io.Writer;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.RecordComponent;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.thoughtworks.xstream.XStreamException;
+import com.thoughtworks.xstream.converters.reflection.ReflectionProvider;
+
+/**
+ * Compact JSON form of an object graph, as a faster alternative to
+ * XStream. Serializable fields are taken from {@link ObjectStreamClass} and
+ * read and written through method handles that are built once per class,
+ * so no reflection runs per object. Common JDK collections and maps are
+ * written as their elements.
+ * <p>
+ * Classes this cannot rebuild field by field (custom {@code writeObject},
+ * {@code writeReplace}, {@code Externalizable}, proxies, JDK classes that
+ * are not open to reflection) are embedded as their own serialization
+ * stream in base64 under {@code "@serialized"}; they round-trip unchanged
+ * but cannot be edited. Those streams are read under the same
+ * deserialization budget as a rendered message, and may only hold classes
+ * the JSON itself could name. Shared references are kept with
+ * {@code "@id"} and {@code "@ref"}, but not across the boundary of an
+ * embedded stream: a graph where an object inside one is also referenced
+ * from outside it, or from another one, is refused rather than written
+ * with that object duplicated, and has to be viewed as XML.
+ */
+final class JsonObjectCodec implements ObjectCodec {
+
+    private static final Set<Class<?>> COLLECTIONS = Set.of(ArrayList.class, LinkedList.class, ArrayDeque.class,
+            Vector.class, HashSet.class, LinkedHashSet.class, TreeSet.class);
+    private static final Set<Class<?>> MAPS = Set.of(HashMap.class, LinkedHashMap.class, TreeMap.class,
+            Hashtable.class, ConcurrentHashMap.class);
+    /** Boxed values written with a tag, because a bare JSON number reads back as an Integer or a Double. */
+    private static final Map<Class<?>, String> BOX_TAGS = Map.of(Long.class, "@long", Short.class, "@short",
+            Byte.class, "@byte", Float.class, "@float", Double.class, "@double", Character.class, "@char");
+
+    private enum Shape {
+        FIELDS, RECORD, SERIALIZED
+    }
+
+    /** A serializable field or record component; the setter is null for records. */
+    private record Property(String key, Class<?> type, MethodHandle getter, MethodHandle setter) {
+    }
+
+    /**
+     * How a class is written. Only records have a constructor: the canonical
+     * one, taking the components as an {@code Object[]}.
+     */
+    private record Plan(Shape shape, List<Property> properties, Map<String, Property> byKey,
+            MethodHandle constructor) {
+    }
+
+    private static final int MAX_INDENT = 32;
+    private static final String INDENT = " ".repeat(2 * MAX_INDENT);
+
+    private static final Plan SERIALIZED = new Plan(Shape.SERIALIZED, List.of(), Map.of(), null);
+
+    private static final ClassValue<Plan> PLANS = new ClassValue<>() {
+        @Override
+        protected Plan computeValue(Class<?> type) {
+            return plan(type);
+        }
+    };
+
+    private final ClassResolver resolver;
+    private final ClassIndex index;
+    private final ClassIndexTypePermission permission;
+    private final ReflectionProvider instantiator;
+
+    /** {@code instantiator} creates objects without running their constructors, as XStream does. */
+    JsonObjectCodec(ClassResolver resolver, ClassIndex index, ClassIndexTypePermission permission,
+            ReflectionProvider instantiator) {
+        this.resolver = resolver;
+        this.index = index;
+        this.permission = permission;
+        this.instantiator = instantiator;
+    }
+
+    @Override
+    public Metrics.Stage writeStage() {
+        return Metrics.Stage.TO_JSON;
+    }
+
+    @Override
+    public Metrics.Stage readStage() {
+        return Metrics.Stage.FROM_JSON;
+    }
+
+    @Override
+    public void write(Object object, Writer out) throws IOException {
+        new Encoder(out).document(object);
+    }
+
+    @Override
+    public Object read(String text, DeserializationBudget budget) throws IOException, ClassNotFoundException {
+        Object tree;
+        try (JsonReader json = new JsonReader(new StringReader(text))) {
+            tree = parse(json);
+            if (json.peek() != JsonReader.Token.END_DOCUMENT) {
+                throw new IOException("Malformed JSON: unexpected content after the root value");
+            }
+        }
+        return new Decoder(budget).value(tree);
+    }
+
+    private static Plan plan(Class<?> type) {
+        if (!Serializable.class.isAssignableFrom(type) || Externalizable.class.isAssignableFrom(type)
+                || Proxy.isProxyClass(type) || hasCustomSerialization(type)) {
+            return SERIALIZED;
+        }
+        try {
+            return type.isRecord() ? recordPlan(type) : fieldPlan(type);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // not open to reflection, or a serialPersistentFields form that does not match the fields
+            return SERIALIZED;
+        }
+    }
+
+    private static boolean hasCustomSerialization(Class<?> type) {
+        for (Class<?> c = type; c != null && Serializable.class.isAssignableFrom(c); c = c.getSuperclass()) {
+            if (declares(c, "writeObject", ObjectOutputStream.class) || declares(c, "readObject", ObjectInputStream.class)
+                    || declares(c, "readObjectNoData") || declares(c, "writeReplace") || declares(c, "readResolve")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean declares(Class<?> type, String name, Class<?>... parameterTypes) {
+        try {
+            type.getDeclaredMethod(name, parameterTypes);
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static Plan fieldPlan(Class<?> type) throws ReflectiveOperationException {
+        List<Class<?>> hierarchy = new ArrayList<>();
+        for (Class<?> c = type; c != null && Serializable.class.isAssignableFrom(c); c = c.getSuperclass()) {
+            hierarchy.add(0, c);
+        }
+        List<Field> fields = new ArrayList<>();
+        Map<String, Integer> lastDeclaration = new HashMap<>();
+        for (Class<?> c : hierarchy) {
+            for (ObjectStreamField streamField : ObjectStreamClass.lookup(c).getFields()) {
+                Field field = c.getDeclaredField(streamField.getName());
+                if (field.getType() != streamField.getType()) {
+                    return SERIALIZED;
+                }
+                field.setAccessible(true);
+                lastDeclaration.put(field.getName(), fields.size());
+                fields.add(field);
+            }
+        }
+
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        List<Property> properties = new ArrayList<>(fields.size());
+        for (int i = 0; i < fields.size(); i++) {
+            Field field = fields.get(i);
+            // a field hidden by a subclass field of the same name is qualified with its class
+            String key = lastDeclaration.get(field.getName()) == i ? field.getName()
+                    : field.getDeclaringClass().getName() + "#" + field.getName();
+            properties.add(new Property(key, field.getType(),
+                    lookup.unreflectGetter(field).asType(MethodType.methodType(Object.class, Object.class)),
+                    lookup.unreflectSetter(field).asType(MethodType.methodType(void.class, Object.class, Object.class))));
+        }
+        return new Plan(Shape.FIELDS, properties, byKey(properties), null);
+    }
+
+    private static Plan recordPlan(Class<?> type) throws ReflectiveOperationException {
+        RecordComponent[] components = type.getRecordComponents();
+        Class<?>[] types = new Class<?>[components.length];
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        List<Property> properties = new ArrayList<>(components.length);
+        for (int i = 0; i < components.length; i++) {
+            types[i] = components[i].getType();
+            Method accessor = components[i].getAccessor();
+            accessor.setAccessible(true);
+            properties.add(new Property(components[i].getName(), types[i],
+                    lookup.unreflect(accessor).asType(MethodType.methodType(Object.class, Object.class)), null));
+        }
+        Constructor<?> canonical = type.getDeclaredConstructor(types);
+        canonical.setAccessible(true);
+        MethodHandle constructor = lookup.unreflectConstructor(canonical)
+                .asType(MethodType.genericMethodType(components.length))
+                .asSpreader(Object[].class, components.length);
+        return new Plan(Shape.RECORD, properties, byKey(properties), constructor);
+    }
+
+    private static Map<String, Property> byKey(List<Property> properties) {
+        Map<String, Property> byKey = new HashMap<>();
+        properties.forEach(property -> byKey.put(property.key(), property));
+        return byKey;
+    }
+
+    /** Rethrows errors; anything else thrown through a method handle becomes an IOException. */
+    private static IOException failure(String message, Throwable e) {
+        if (e instanceof Error error) {
+            throw error;
+        }
+        return new IOException(message + ": " + e, e);
+    }
+
+    private static final class Encoder {
+        private final Writer out;
+        /** Output is collected here and handed to {@code out} in chunks rather than token by token. */
+        private final char[] buffer = new char[8192];
+        private int count;
+        private final IdentityHashMap<Object, Integer> ids = new IdentityHashMap<>();
+        /** Objects written inside an embedded stream, mapped to the object whose stream holds them. */
+        private final IdentityHashMap<Object, Object> embedded = new IdentityHashMap<>();
+        private int depth;
+        /** True until the innermost open object or array has its first member. */
+        private boolean first;
+
+        Encoder(Writer out) {
+            this.out = out;
+        }
+
+        void document(Object root) throws IOException {
+            value(root);
+            write('\n');
+            flush();
+        }
+
+        private void flush() throws IOException {
+            out.write(buffer, 0, count);
+            count = 0;
+        }
+
+        private void write(char c) throws IOException {
+            if (count == buffer.length) {
+                flush();
+            }
+            buffer[count++] = c;
+        }
+
+        private void write(String text) throws IOException {
+            write(text, 0, text.length());
+        }
+
+        private void write(String text, int offset, int length) throws IOException {
+            while (length > 0) {
+                if (count == buffer.length) {
+                    flush();
+                }
+                int chunk = Math.min(length, buffer.length - count);
+                text.getChars(offset, offset + chunk, buffer, count);
+                count += chunk;
+                offset += chunk;
+                length -= chunk;
+            }
+        }
+
+        void value(Object value) throws IOException {
+            if (value == null) {
+                write("null");
+                return;
+            }
+            Class<?> type = value.getClass();
+            if (type == String.class) {
+                string((String) value);
+                return;
+            }
+            if (type == Integer.class || type == Boolean.class
+                    || type == Double.class && Double.isFinite((Double) value)) {
+                write(value.toString());
+                return;
+            }
+            String boxTag = BOX_TAGS.get(type);
+            if (boxTag != null) {
+                inline(boxTag, value.toString());
+                return;
+            }
+            if (value instanceof Enum<?> constant) {
+                open('{');
+                member("@enum");
+                string(constant.getDeclaringClass().getName());
+                member("name");
+                string(constant.name());
+                close('}');
+                return;
+            }
+            if (value instanceof Class<?> c) {
+                inline("@class", c.getName());
+                return;
+            }
+
+            if (embedded.containsKey(value)) {
+                throw shared(value);
+            }
+            Integer id = ids.get(value);
+            if (id != null) {
+                write("{\"@ref\": " + id + "}");
+                return;
+            }
+            id = ids.size() + 1;
+            ids.put(value, id);
+
+            if (type.isArray()) {
+                array(value, id);
+            } else if (COLLECTIONS.contains(type) && !(value instanceof SortedSet<?> set && set.comparator() != null)) {
+                header("@type", type.getName(), id);
+                member("items");
+                open('[');
+                for (Object element : (Collection<?>) value) {
+                    element();
+                    value(element);
+                }
+                close(']');
+                close('}');
+            } else if (MAPS.contains(type) && !(value instanceof SortedMap<?, ?> map && map.comparator() != null)) {
+                map((Map<?, ?>) value, id);
+            } else {
+                object(value, type, id);
+            }
+        }
+
+        /** Maps with string keys read as a JSON object under "members"; others as [key, value] pairs. */
+        private void map(Map<?, ?> map, int id) throws IOException {
+            header("@type", map.getClass().getName(), id);
+            boolean stringKeys = true;
+            for (Object key : map.keySet()) {
+                stringKeys &= key instanceof String;
+            }
+            member(stringKeys ? "members" : "entries");
+            open(stringKeys ? '{' : '[');
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                if (stringKeys) {
+                    member((String) entry.getKey());
+                } else {
+                    element();
+                    write('[');
+                    value(entry.getKey());
+                    write(", ");
+                }
+                value(entry.getValue());
+                if (!stringKeys) {
+                    write(']');
+                }
+            }
+            close(stringKeys ? '}' : ']');
+            close('}');
+        }
+
+        private void object(Object value, Class<?> type, int id) throws IOException {
+            Plan plan = PLANS.get(type);
+            if (plan.shape() == Shape.SERIALIZED) {
+                header("@serialized", type.getName(), id);
+                member("base64");
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try (ObjectOutputStream oos = new EmbeddedOutputStream(bytes, value)) {
+                    oos.writeObject(value);
+                }
+                string(Base64.getEncoder().encodeToString(bytes.toByteArray()));
+                close('}');
+                return;
+            }
+
+            header(plan.shape() == Shape.RECORD ? "@record" : "@type", type.getName(), id);
+            for (Property property : plan.properties()) {
+                Object fieldValue;
+                try {
+                    fieldValue = (Object) property.getter().invokeExact(value);
+                } catch (Throwable e) {
+                    throw failure("Cannot read " + property.key() + " of " + type.getName(), e);
+                }
+                member(property.key());
+                if (property.type().isPrimitive()) {
+                    primitive(fieldValue);
+                } else {
+                    value(fieldValue);
+                }
+            }
+            close('}');
+        }
+
+        private void array(Object array, int id) throws IOException {
+            Class<?> component = array.getClass().getComponentType();
+            header("@array", component.getName(), id);
+            if (component == byte.class) {
+                member("base64");
+                string(Base64.getEncoder().encodeToString((byte[]) array));
+            } else if (component == char.class) {
+                member("text");
+                string(new String((char[]) array));
+            } else if (component.isPrimitive()) {
+                // primitive elements stay on one line, a large int[] would otherwise take a line per element
+                member("items");
+                write('[');
+                for (int i = 0, length = Array.getLength(array); i < length; i++) {
+                    if (i > 0) {
+                        write(", ");
+                    }
+                    primitive(Array.get(array, i));
+                }
+                write(']');
+            } else {
+                member("items");
+                open('[');
+                for (Object element : (Object[]) array) {
+                    element();
+                    value(element);
+                }
+                close(']');
+            }
+            close('}');
+        }
+
+        /** A primitive whose type the reader knows from the field or array; only non-finite floats need quotes. */
+        private void primitive(Object boxed) throws IOException {
+            if (boxed instanceof Character c) {
+                string(c.toString());
+            } else if (boxed instanceof Double d && !Double.isFinite(d) || boxed instanceof Float f && !Float.isFinite(f)) {
+                string(boxed.toString());
+            } else {
+                write(boxed.toString());
+            }
+        }
+
+        private static IOException shared(Object value) {
+            return new IOException("An object of " + value.getClass().getName()
+                    + " is referenced both inside a @serialized stream and elsewhere in the graph;"
+                    + " the JSON view cannot keep that reference, use the XML view");
+        }
+
+        /**
+         * Stream of one {@code "@serialized"} object that records every object
+         * it writes, so references shared with the rest of the graph are
+         * found instead of being split into two copies on the way back.
+         */
+        private final class EmbeddedOutputStream extends ObjectOutputStream {
+            private final Object root;
+
+            EmbeddedOutputStream(OutputStream out, Object root) throws IOException {
+                super(out);
+                this.root = root;
+                enableReplaceObject(true);
+            }
+
+            @Override
+            protected Object replaceObject(Object obj) throws IOException {
+                boolean value = obj instanceof String || obj instanceof Enum<?> || obj instanceof Integer
+                        || obj instanceof Boolean || BOX_TAGS.containsKey(obj.getClass());
+                if (obj != root && !value && (ids.containsKey(obj) || embedded.putIfAbsent(obj, root) != null)) {
+                    throw shared(obj);
+                }
+                return obj;
+            }
+        }
+
+        private void header(String tag, String className, int id) throws IOException {
+            open('{');
+            member(tag);
+            string(className);
+            member("@id");
+            write(Integer.toString(id));
+        }
+
+        private void inline(String tag, String value) throws IOException {
+            write("{\"");
+            write(tag);
+            write("\": ");
+            string(value);
+            write('}');
+        }
+
+        private void open(char c) throws IOException {
+            write(c);
+            depth++;
+            first = true;
+        }
+
+        private void close(char c) throws IOException {
+            depth--;
+            if (!first) {
+                newline();
+            }
+            write(c);
+            first = false;
+        }
+
+        private void member(String name) throws IOException {
+            element();
+            string(name);
+            write(": ");
+        }
+
+        private void element() throws IOException {
+            if (!first) {
+                write(',');
+            }
+            first = false;
+            newline();
+        }
+
+        /** Indentation stops growing past {@link #MAX_INDENT} levels, so deep graphs stay linear in size. */
+        private void newline() throws IOException {
+            write('\n');
+            write(INDENT, 0, 2 * Math.min(depth, MAX_INDENT));
+        }
+
+        /** Writes a JSON string; unpaired surrogates are escaped so they survive the UTF-8 round trip. */
+        private void string(String value) throws IOException {
+            write('"');
+            int start = 0;
+            int length = value.length();
+            for (int i = 0; i < length; i++) {
+                char c = value.charAt(i);
+                String escape = null;
+                if (c == '"' || c == '\\') {
+                    escape = "\\" + c;
+                } else if (c < 0x20) {
+                    escape = switch (c) {
+                        case '\n' -> "\\n";
+                        case '\r' -> "\\r";
+                        case '\t' -> "\\t";
+                        default -> String.format("\\u%04x", (int) c);
+                    };
+                } else if (Character.isHighSurrogate(c)) {
+                    if (i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                        i++;
+                    } else {
+                        escape = String.format("\\u%04x", (int) c);
+                    }
+                } else if (Character.isLowSurrogate(c)) {
+                    escape = String.format("\\u%04x", (int) c);
+                }
+                if (escape != null) {
+                    write(value, start, i - start);
+                    write(escape);
+                    start = i + 1;
+                }
+            }
+            write(value, start, length - start);
+            write('"');
+        }
+    }
+
+    /** Number text as it appeared in the document, typed once the target is known. */
+    private record Literal(String text) {
+    }
+
+    /** Reads the document into maps, lists, strings, booleans, literals and nulls. */
+    private static Object parse(JsonReader json) throws IOException {
+        switch (json.peek()) {
+            case BEGIN_OBJECT -> {
+                Map<String, Object> object = new LinkedHashMap<>();
+                json.beginObject();
+                while (json.hasNext()) {
+                    String name = json.nextName();
+                    object.put(name, parse(json));
+                }
+                json.endObject();
+                return object;
+            }
+            case BEGIN_ARRAY -> {
+                List<Object> array = new ArrayList<>();
+                json.beginArray();
+                while (json.hasNext()) {
+                    array.add(parse(json));
+                }
+                json.endArray();
+                return array;
+            }
+            case STRING -> {
+                return json.nextString();
+            }
+            case NUMBER -> {
+                return new Literal(json.nextString());
+            }
+            case BOOLEAN, NULL -> {
+                String literal = json.nextString();
+                return switch (literal) {
+                    case "true" -> Boolean.TRUE;
+                    case "false" -> Boolean.FALSE;
+                    case "null" -> null;
+                    default -> throw new IOException("Malformed JSON: unknown literal " + literal);
+                };
+            }
+            default -> throw new IOException("Malformed JSON: expected a value but found " + json.peek());
+        }
+    }
+
+    private final class Decoder {
+        private final DeserializationBudget budget;
+        private final Map<Integer, Object> ids = new HashMap<>();
+        /**
+         * One instance per distinct string, so repeated strings become back
+         * references in the stream again, as they were in the original.
+         */
+        private final Map<String, String> strings = new HashMap<>();
+        private String rejectedClass;
+
+        Decoder(DeserializationBudget budget) {
+            this.budget = budget;
+        }
+
+        Object value(Object node) throws IOException, ClassNotFoundException {
+            if (node instanceof String text) {
+                String shared = strings.putIfAbsent(text, text);
+                return shared != null ? shared : text;
+            }
+            if (node == null || node instanceof Boolean) {
+                return node;
+            }
+            if (node instanceof Literal literal) {
+                return number(literal.text());
+            }
+            if (!(node instanceof Map<?, ?> object)) {
+                throw new IOException("Arrays must be written as an \"@array\" object");
+            }
+
+            if (object.containsKey("@ref")) {
+                int id = integer(object.get("@ref"));
+                if (!ids.containsKey(id)) {
+                    throw new IOException("Reference to unknown or unfinished object " + id);
+                }
+                return ids.get(id);
+            }
+            for (Map.Entry<Class<?>, String> tag : BOX_TAGS.entrySet()) {
+                if (object.containsKey(tag.getValue())) {
+                    return box(tag.getKey(), text(object, tag.getValue()));
+                }
+            }
+            if (object.containsKey("@enum")) {
+                Class<?> type = allowedType(text(object, "@enum"));
+                String name = text(object, "name");
+                for (Object constant : type.isEnum() ? type.getEnumConstants() : new Object[0]) {
+                    if (((Enum<?>) constant).name().equals(name)) {
+                        return constant;
+                    }
+                }
+                throw new IOException("No enum constant " + type.getName() + "." + name);
+            }
+            if (object.containsKey("@class")) {
+                return resolver.resolve(text(object, "@class"));
+            }
+            if (object.containsKey("@array")) {
+                return array(object);
+            }
+            if (object.containsKey("@serialized")) {
+                return serialized(object);
+            }
+            if (object.containsKey("@record")) {
+                return record(object);
+            }
+            if (object.containsKey("@type")) {
+                return typed(object);
+            }
+            throw new IOException("Object without a type tag: " + object.keySet());
+        }
+
+        @SuppressWarnings("unchecked")
+        private Object typed(Map<?, ?> object) throws IOException, ClassNotFoundException {
+            Class<?> type = allowedType(text(object, "@type"));
+            if (COLLECTIONS.contains(type) || MAPS.contains(type)) {
+                Object container;
+                try {
+                    container = type.getDeclaredConstructor().newInstance();
+                } catch (ReflectiveOperationException e) {
+                    throw new IOException("Cannot create " + type.getName() + ": " + e, e);
+                }
+                register(object, container);
+                if (container instanceof Collection<?> collection) {
+                    for (Object item : list(object, "items")) {
+                        ((Collection<Object>) collection).add(value(item));
+                    }
+                } else if (object.get("members") instanceof Map<?, ?> members) {
+                    for (Map.Entry<?, ?> member : members.entrySet()) {
+                        ((Map<Object, Object>) container).put(value(member.getKey()), value(member.getValue()));
+                    }
+                } else {
+                    for (Object entry : list(object, "entries")) {
+                        if (!(entry instanceof List<?> pair) || pair.size() != 2) {
+                            throw new IOException("Map entries of " + type.getName() + " must be [key, value] pairs");
+                        }
+                        ((Map<Object, Object>) container).put(value(pair.get(0)), value(pair.get(1)));
+                    }
+                }
+                return container;
+            }
+
+            Plan plan = PLANS.get(type);
+            if (plan.shape() != Shape.FIELDS) {
+                throw new IOException(type.getName() + " must be written as \""
+                        + (plan.shape() == Shape.RECORD ? "@record" : "@serialized") + "\"");
+            }
+            Object instance;
+            try {
+                instance = instantiator.newInstance(type);
+            } catch (XStreamException e) {
+                throw new IOException("Cannot create " + type.getName() + ": " + e.getMessage(), e);
+            }
+            register(object, instance);
+            for (Map.Entry<?, ?> member : object.entrySet()) {
+                String key = (String) member.getKey();
+                if (key.startsWith("@")) {
+                    continue;
+                }
+                Property property = property(plan, type, key);
+                Object fieldValue = property.type().isPrimitive() ? primitive(member.getValue(), property.type())
+                        : value(member.getValue());
+                try {
+                    property.setter().invokeExact(instance, fieldValue);
+                } catch (Throwable e) {
+                    throw failure("Cannot set " + key + " of " + type.getName(), e);
+                }
+            }
+            return instance;
+        }
+
+        private Object record(Map<?, ?> object) throws IOException, ClassNotFoundException {
+            Class<?> type = allowedType(text(object, "@record"));
+            Plan plan = PLANS.get(type);
+            if (plan.shape() != Shape.RECORD) {
+                throw new IOException(type.getName() + " is not a record");
+            }
+            Object[] components = new Object[plan.properties().size()];
+            for (int i = 0; i < components.length; i++) {
+                Class<?> componentType = plan.properties().get(i).type();
+                // a missing component gets its default, as in a stream written by an older version
+                components[i] = componentType.isPrimitive() ? Array.get(Array.newInstance(componentType, 1), 0) : null;
+            }
+            for (Map.Entry<?, ?> member : object.entrySet()) {
+                String key = (String) member.getKey();
+                if (key.startsWith("@")) {
+                    continue;
+                }
+                Property property = property(plan, type, key);
+                components[plan.properties().indexOf(property)] = property.type().isPrimitive()
+                        ? primitive(member.getValue(), property.type())
+                        : value(member.getValue());
+            }
+            Object instance;
+            try {
+                instance = (Object) plan.constructor().invokeExact(components);
+            } catch (Throwable e) {
+                throw failure("Cannot create " + type.getName(), e);
+            }
+            register(object, instance);
+            return instance;
+        }
+
+        private Object array(Map<?, ?> object) throws IOException, ClassNotFoundException {
+            Class<?> component = allowedType(text(object, "@array"));
+            if (component == byte.class) {
+                return register(object, decodeBase64(text(object, "base64")));
+            }
+            if (component == char.class) {
+                return register(object, text(object, "text").toCharArray());
+            }
+            List<?> items = list(object, "items");
+            Object array = Array.newInstance(component, items.size());
+            register(object, array);
+            for (int i = 0; i < items.size(); i++) {
+                Object item = component.isPrimitive() ? primitive(items.get(i), component) : value(items.get(i));
+                try {
+                    Array.set(array, i, item);
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Element " + i + " does not fit an array of " + component.getName(), e);
+                }
+            }
+            return array;
+        }
+
+        private Object serialized(Map<?, ?> object) throws IOException, ClassNotFoundException {
+            Class<?> type = allowedType(text(object, "@serialized"));
+            byte[] stream = decodeBase64(text(object, "base64"));
+            Object instance;
+            try (ObjectInputStream in = new CustomLoaderObjectInputStream(new ByteArrayInputStream(stream), resolver,
+                    index, ObjectInputFilter.merge(budget, this::checkClass), null)) {
+                instance = in.readObject();
+            } catch (InvalidClassException e) {
+                if (budget.isExceeded()) {
+                    throw new IOException(budget.describe(), e);
+                }
+                if (rejectedClass != null) {
+                    throw new IOException("The stream of a " + type.getName() + " holds " + rejectedClass
+                            + ", which is not in the class index or an allowed package; add it in the JDSer tab", e);
+                }
+                throw e;
+            }
+            if (instance == null || instance.getClass() != type) {
+                throw new IOException("The stream of a " + type.getName() + " holds a "
+                        + (instance == null ? "null" : instance.getClass().getName()));
+            }
+            return register(object, instance);
+        }
+
+        private Object register(Map<?, ?> object, Object instance) throws IOException {
+            if (object.containsKey("@id")) {
+                ids.put(integer(object.get("@id")), instance);
+            }
+            return instance;
+        }
+
+        /**
+         * Resolves a class named in the document. As with XStream, only
+         * classes of the class index, the allowed packages, the JDK's own
+         * {@code java.*} packages and arrays of those are created.
+         */
+        private Class<?> allowedType(String name) throws IOException, ClassNotFoundException {
+            Class<?> type = resolver.resolve(name);
+            Class<?> element = elementType(type);
+            if (isAllowed(element)) {
+                return type;
+            }
+            throw new IOException("Class " + element.getName()
+                    + " is not in the class index or an allowed package; add it in the JDSer tab");
+        }
+
+        /** Stream filter holding an embedded stream to the classes {@link #allowedType} accepts. */
+        private ObjectInputFilter.Status checkClass(ObjectInputFilter.FilterInfo info) {
+            if (info.serialClass() == null) {
+                return ObjectInputFilter.Status.UNDECIDED;
+            }
+            Class<?> element = elementType(info.serialClass());
+            if (Proxy.isProxyClass(element) ? Arrays.stream(element.getInterfaces()).allMatch(this::isAllowed)
+                    : isAllowed(element)) {
+                return ObjectInputFilter.Status.UNDECIDED;
+            }
+            rejectedClass = element.getName();
+            return ObjectInputFilter.Status.REJECTED;
+        }
+
+        private static Class<?> elementType(Class<?> type) {
+            Class<?> element = type;
+            while (element.isArray()) {
+                element = element.getComponentType();
+            }
+            return element;
+        }
+
+        private boolean isAllowed(Class<?> element) {
+            return element.isPrimitive() || element.getName().startsWith("java.") || permission.allows(element);
+        }
+    }
+
+    private static Property property(Plan plan, Class<?> type, String key) throws IOException {
+        Property property = plan.byKey().get(key);
+        if (property == null) {
+            throw new IOException(type.getName() + " has no serializable field " + key);
+        }
+        return property;
+    }
+
+    private static Object number(String text) throws IOException {
+        try {
+            if (text.indexOf('.') >= 0 || text.indexOf('e') >= 0 || text.indexOf('E') >= 0) {
+                return Double.valueOf(text);
+            }
+            long value = Long.parseLong(text);
+            return value == (int) value ? (Object) (int) value : (Object) value;
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed number " + text, e);
+        }
+    }
+
+    /** A value for a primitive field or array element: a number, a boolean, or a one-character string. */
+    private static Object primitive(Object node, Class<?> type) throws IOException {
+        if (type == boolean.class) {
+            if (node instanceof Boolean b) {
+                return b;
+            }
+            throw new IOException("Expected true or false but found " + node);
+        }
+        String text = node instanceof Literal literal ? literal.text() : node instanceof String s ? s : null;
+        if (text == null) {
+            throw new IOException("Expected a " + type.getName() + " but found " + node);
+        }
+        return box(type == char.class ? Character.class : MethodType.methodType(type).wrap().returnType(), text);
+    }
+
+    private static Object box(Class<?> type, String text) throws IOException {
+        try {
+            if (type == Character.class) {
+                if (text.length() != 1) {
+                    throw new IOException("Expected a single character but found \"" + text + "\"");
+                }
+                return text.charAt(0);
+            }
+            if (type == Integer.class) {
+                return Integer.valueOf(text);
+            }
+            if (type == Long.class) {
+                return Long.valueOf(text);
+            }
+            if (type == Short.class) {
+                return Short.valueOf(text);
+            }
+            if (type == Byte.class) {
+                return Byte.valueOf(text);
+            }
+            if (type == Float.class) {
+                return Float.valueOf(text);
+            }
+            if (type == Double.class) {
+                return Double.valueOf(text);
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed " + type.getSimpleName() + " " + text, e);
+        }
+        throw new IOException("Unsupported primitive type " + type.getName());
+    }
+
+    private static String text(Map<?, ?> object, String name) throws IOException {
+        if (object.get(name) instanceof String value) {
+            return value;
+        }
+        throw new IOException("Expected a string for \"" + name + "\" in " + object.keySet());
+    }
+
+    private static List<?> list(Map<?, ?> object, String name) throws IOException {
+        if (object.get(name) instanceof List<?> value) {
+            return value;
+        }
+        throw new IOException("Expected an array for \"" + name + "\" in " + object.keySet());
+    }
+
+    private static int integer(Object node) throws IOException {
+        if (node instanceof Literal literal && number(literal.text()) instanceof Integer value) {
+            return value;
+        }
+        throw new IOException("Expected an integer id but found " + node);
+    }
+
+    private static byte[] decodeBase64(String text) throws IOException {
+        try {
+            return Base64.getMimeDecoder().decode(text);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid base64: " + e.getMessage(), e);
+        }
+    }
+}
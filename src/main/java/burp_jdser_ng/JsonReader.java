@@ -0,0 +1,298 @@
+package burp_jdser_ng;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Minimal pull parser for JSON, enough to walk a HAR file entry by entry
+ * without holding the whole document in memory, and to read back the
+ * editor's JSON view. Values that are not needed
+ * are skipped character by character; only the strings asked for are built.
+ */
+final class JsonReader implements Closeable {
+
+    enum Token {
+        BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+    }
+
+    /** Object graphs rendered as JSON nest one or two levels per object. */
+    private static final int MAX_DEPTH = 4096;
+
+    private final Reader in;
+    private final char[] buffer = new char[8192];
+    private int pos;
+    private int limit;
+    /** True when the next string inside an object is a member name. */
+    private boolean expectName;
+    /** Whether each open container is an object, grown as documents nest deeper. */
+    private boolean[] objects = new boolean[16];
+    private int depth;
+
+    JsonReader(Reader in) {
+        this.in = in;
+    }
+
+    /** Type of the next token, without consuming it. */
+    Token peek() throws IOException {
+        int c = nextNonSeparator();
+        return switch (c) {
+            case -1 -> Token.END_DOCUMENT;
+            case '{' -> Token.BEGIN_OBJECT;
+            case '}' -> Token.END_OBJECT;
+            case '[' -> Token.BEGIN_ARRAY;
+            case ']' -> Token.END_ARRAY;
+            case '"' -> expectName ? Token.NAME : Token.STRING;
+            case 't', 'f' -> Token.BOOLEAN;
+            case 'n' -> Token.NULL;
+            default -> Token.NUMBER;
+        };
+    }
+
+    void beginObject() throws IOException {
+        expect('{');
+        push(true);
+    }
+
+    void endObject() throws IOException {
+        expect('}');
+        pop();
+    }
+
+    void beginArray() throws IOException {
+        expect('[');
+        push(false);
+    }
+
+    void endArray() throws IOException {
+        expect(']');
+        pop();
+    }
+
+    /** True if the current object or array has another member or element. */
+    boolean hasNext() throws IOException {
+        int c = nextNonSeparator();
+        return c != '}' && c != ']' && c != -1;
+    }
+
+    String nextName() throws IOException {
+        if (peek() != Token.NAME) {
+            throw syntaxError("expected a member name");
+        }
+        pos++;
+        String name = readString();
+        expectName = false;
+        if (nextNonSeparator() != ':') {
+            throw syntaxError("expected ':'");
+        }
+        pos++;
+        return name;
+    }
+
+    /** Reads a string value, or the literal text of a number, boolean or null. */
+    String nextString() throws IOException {
+        Token token = peek();
+        String value;
+        if (token == Token.STRING) {
+            pos++;
+            value = readString();
+        } else if (token == Token.NUMBER || token == Token.BOOLEAN || token == Token.NULL) {
+            value = readLiteral();
+        } else {
+            throw syntaxError("expected a value but found " + token);
+        }
+        valueRead();
+        return value;
+    }
+
+    /** Skips the next value, including everything nested inside it. */
+    void skipValue() throws IOException {
+        int nested = 0;
+        do {
+            switch (peek()) {
+                case BEGIN_OBJECT -> {
+                    beginObject();
+                    nested++;
+                }
+                case BEGIN_ARRAY -> {
+                    beginArray();
+                    nested++;
+                }
+                case END_OBJECT -> {
+                    endObject();
+                    nested--;
+                }
+                case END_ARRAY -> {
+                    endArray();
+                    nested--;
+                }
+                case NAME -> {
+                    nextName();
+                    continue;
+                }
+                case STRING -> {
+                    pos++;
+                    skipString();
+                    valueRead();
+                }
+                case END_DOCUMENT -> throw syntaxError("unexpected end of document");
+                default -> {
+                    readLiteral();
+                    valueRead();
+                }
+            }
+        } while (nested > 0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void push(boolean object) throws IOException {
+        if (depth >= MAX_DEPTH) {
+            throw syntaxError("nesting deeper than " + MAX_DEPTH);
+        }
+        if (depth == objects.length) {
+            objects = Arrays.copyOf(objects, depth * 2);
+        }
+        objects[depth++] = object;
+        expectName = object;
+    }
+
+    private void pop() {
+        depth--;
+        valueRead();
+    }
+
+    /** After a value inside an object, the next string is a name again. */
+    private void valueRead() {
+        expectName = depth > 0 && objects[depth - 1];
+    }
+
+    private void expect(char c) throws IOException {
+        if (nextNonSeparator() != c) {
+            throw syntaxError("expected '" + c + "'");
+        }
+        pos++;
+    }
+
+    /** Skips whitespace and commas and returns the next character without consuming it, or -1. */
+    private int nextNonSeparator() throws IOException {
+        while (pos < limit || fill()) {
+            char c = buffer[pos];
+            if (c == ' ' || c == '\t' || c == '\r' || c == '\n' || c == ',') {
+                pos++;
+            } else {
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    private boolean fill() throws IOException {
+        limit = in.read(buffer, 0, buffer.length);
+        pos = 0;
+        if (limit < 0) {
+            limit = 0;
+            return false;
+        }
+        return true;
+    }
+
+    private int read() throws IOException {
+        if (pos >= limit && !fill()) {
+            throw syntaxError("unterminated string");
+        }
+        return buffer[pos++];
+    }
+
+    private String readString() throws IOException {
+        // most strings have no escapes and end inside the buffer
+        for (int i = pos; i < limit; i++) {
+            char c = buffer[i];
+            if (c == '"') {
+                String value = new String(buffer, pos, i - pos);
+                pos = i + 1;
+                return value;
+            }
+            if (c == '\\') {
+                break;
+            }
+        }
+        StringBuilder out = new StringBuilder();
+        while (true) {
+            int start = pos;
+            while (pos < limit) {
+                char c = buffer[pos];
+                if (c == '"' || c == '\\') {
+                    break;
+                }
+                pos++;
+            }
+            out.append(buffer, start, pos - start);
+            if (pos >= limit) {
+                if (!fill()) {
+                    throw syntaxError("unterminated string");
+                }
+                continue;
+            }
+            if (buffer[pos++] == '"') {
+                return out.toString();
+            }
+            int escaped = read();
+            switch (escaped) {
+                case 'b' -> out.append('\b');
+                case 'f' -> out.append('\f');
+                case 'n' -> out.append('\n');
+                case 'r' -> out.append('\r');
+                case 't' -> out.append('\t');
+                case 'u' -> {
+                    int code = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digit = Character.digit(read(), 16);
+                        if (digit < 0) {
+                            throw syntaxError("invalid \\u escape");
+                        }
+                        code = code << 4 | digit;
+                    }
+                    out.append((char) code);
+                }
+                default -> out.append((char) escaped);
+            }
+        }
+    }
+
+    private void skipString() throws IOException {
+        while (true) {
+            int c = read();
+            if (c == '"') {
+                return;
+            }
+            if (c == '\\') {
+                read();
+            }
+        }
+    }
+
+    private String readLiteral() throws IOException {
+        StringBuilder out = new StringBuilder();
+        while (pos < limit || fill()) {
+            char c = buffer[pos];
+            if (c == ',' || c == '}' || c == ']' || c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+                break;
+            }
+            out.append(c);
+            pos++;
+        }
+        if (out.isEmpty()) {
+            throw syntaxError("expected a value");
+        }
+        return out.toString();
+    }
+
+    private IOException syntaxError(String message) {
+        return new IOException("Malformed JSON: " + message);
+    }
+}
@@ -0,0 +1,223 @@
+package burp_jdser_ng;
+
+import java.util.Collection;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.swing.Timer;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Single-column table model backed by a bounded ring buffer. Rows can be
+ * appended from any thread; they are queued and flushed on a Swing timer so a
+ * burst of messages costs one table event per flush. The timer only runs
+ * while rows are queued. Once the capacity is reached the oldest rows are
+ * dropped. The optional filter is applied to the buffer, not to the JTable;
+ * it scans the whole buffer when it changes, and after that only the rows
+ * each flush appends.
+ */
+final class LogTableModel extends AbstractTableModel {
+
+    private static final int FLUSH_INTERVAL_MS = 200;
+    private static final int INITIAL_SIZE = 1024;
+
+    private final String columnName;
+    private final int capacity;
+    private final ConcurrentLinkedQueue<String> pending = new ConcurrentLinkedQueue<>();
+    private final Timer flushTimer;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private boolean replacePending; // guarded by pending
+
+    // touched on the EDT only
+    private String[] rows;
+    private int head;
+    private int size;
+    /** Sequence number of the oldest row; row {@code i} has sequence number {@code firstSeq + i}. */
+    private long firstSeq;
+    private String filter = "";
+    /** Sequence numbers of the matching rows in {@code [filteredStart, filteredEnd)}, or null without a filter. */
+    private long[] filtered;
+    private int filteredStart;
+    private int filteredEnd;
+
+    LogTableModel(String columnName, int capacity) {
+        this.columnName = columnName;
+        this.capacity = capacity;
+        this.rows = new String[Math.min(INITIAL_SIZE, capacity)];
+        this.flushTimer = new Timer(FLUSH_INTERVAL_MS, e -> flush());
+        this.flushTimer.setRepeats(false);
+    }
+
+    /** Queues a row; safe to call from any thread. */
+    void append(String row) {
+        pending.add(row);
+        scheduleFlush();
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            flushTimer.restart();
+        }
+    }
+
+    /** Replaces all rows on the next flush; safe to call from any thread. */
+    void replaceAll(Collection<String> newRows) {
+        synchronized (pending) {
+            pending.clear();
+            replacePending = true;
+            pending.addAll(newRows);
+        }
+        scheduleFlush();
+    }
+
+    /** Drops all rows, including queued ones. Must be called on the EDT. */
+    void clear() {
+        synchronized (pending) {
+            pending.clear();
+            replacePending = false;
+        }
+        rows = new String[Math.min(INITIAL_SIZE, capacity)];
+        head = 0;
+        size = 0;
+        firstSeq = 0;
+        refilter();
+        fireTableDataChanged();
+    }
+
+    /** Must be called on the EDT. */
+    void setFilter(String text) {
+        filter = text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+        refilter();
+        fireTableDataChanged();
+    }
+
+    void dispose() {
+        flushTimer.stop();
+    }
+
+    private void flush() {
+        flushScheduled.set(false);
+        boolean replace;
+        int firstNew;
+        int dropped = 0;
+        int visibleBefore = getRowCount();
+        synchronized (pending) {
+            replace = replacePending;
+            replacePending = false;
+            if (replace) {
+                rows = new String[Math.min(INITIAL_SIZE, capacity)];
+                head = 0;
+                size = 0;
+                firstSeq = 0;
+            } else if (pending.isEmpty()) {
+                return;
+            }
+
+            firstNew = size;
+            String row;
+            while ((row = pending.poll()) != null) {
+                if (size == rows.length && size < capacity) {
+                    grow();
+                }
+                if (size == capacity) {
+                    rows[head] = row;
+                    head = (head + 1) % capacity;
+                    dropped++;
+                } else {
+                    rows[(head + size) % rows.length] = row;
+                    size++;
+                }
+            }
+        }
+
+        if (replace) {
+            refilter();
+            fireTableDataChanged();
+            return;
+        }
+        long firstNewSeq = firstSeq + firstNew;
+        firstSeq += dropped;
+        int removed;
+        if (filtered == null) {
+            removed = Math.min(dropped, visibleBefore);
+        } else {
+            int start = filteredStart;
+            while (filteredStart < filteredEnd && filtered[filteredStart] < firstSeq) {
+                filteredStart++;
+            }
+            removed = filteredStart - start;
+            for (long seq = Math.max(firstNewSeq, firstSeq); seq < firstSeq + size; seq++) {
+                addIfMatches(seq);
+            }
+        }
+        if (removed > 0) {
+            fireTableRowsDeleted(0, removed - 1);
+        }
+        int visible = getRowCount();
+        if (visible > visibleBefore - removed) {
+            fireTableRowsInserted(visibleBefore - removed, visible - 1);
+        }
+    }
+
+    private void grow() {
+        String[] grown = new String[Math.min(capacity, rows.length * 2)];
+        for (int i = 0; i < size; i++) {
+            grown[i] = rows[(head + i) % rows.length];
+        }
+        rows = grown;
+        head = 0;
+    }
+
+    private String rowAt(int logicalIndex) {
+        return rows[(head + logicalIndex) % rows.length];
+    }
+
+    private void refilter() {
+        filteredStart = 0;
+        filteredEnd = 0;
+        if (filter.isEmpty()) {
+            filtered = null;
+            return;
+        }
+        filtered = new long[Math.max(1, Math.min(size, 256))];
+        for (int i = 0; i < size; i++) {
+            addIfMatches(firstSeq + i);
+        }
+    }
+
+    private void addIfMatches(long seq) {
+        if (!rowAt((int) (seq - firstSeq)).toLowerCase(Locale.ROOT).contains(filter)) {
+            return;
+        }
+        if (filteredEnd == filtered.length) {
+            int count = filteredEnd - filteredStart;
+            long[] target = count * 2 <= filtered.length ? filtered : new long[filtered.length * 2];
+            System.arraycopy(filtered, filteredStart, target, 0, count);
+            filtered = target;
+            filteredStart = 0;
+            filteredEnd = count;
+        }
+        filtered[filteredEnd++] = seq;
+    }
+
+    @Override
+    public int getRowCount() {
+        return filtered == null ? size : filteredEnd - filteredStart;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return 1;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnName;
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        return rowAt(filtered == null ? rowIndex : (int) (filtered[filteredStart + rowIndex] - firstSeq));
+    }
+}
@@ -0,0 +1,391 @@
+package burp_jdser_ng;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Low-overhead counters and latency histograms for every stage of turning a
+ * body into XML and back. Recording a sample costs two {@code nanoTime}
+ * calls and a few atomic increments; percentiles are only computed when the
+ * metrics panel or an export asks for them.
+ *
+ * <p>Allocated bytes are sampled from the per-thread allocation counter.
+ * The JVM does not keep that counter for virtual threads, so stages running
+ * on them only report latency; {@link #totalAllocatedBytes()} gives the
+ * JVM-wide figure instead.
+ */
+final class Metrics {
+
+    enum Stage {
+        DETECT("Detection"),
+        READ_OBJECT("readObject"),
+        CLASS_LOAD("Class loading"),
+        TO_XML("XStream toXML"),
+        FROM_XML("XStream fromXML"),
+        TO_JSON("JSON write"),
+        FROM_JSON("JSON read"),
+        WRITE_OBJECT("ObjectOutputStream"),
+        STRUCTURE("Stream structure"),
+        TEMPLATE("Template compile"),
+        RELOAD("Class path reload"),
+        PROFILE_LOAD("Profile load");
+
+        final String label;
+
+        Stage(String label) {
+            this.label = label;
+        }
+    }
+
+    /** Upper bounds of the payload size buckets, in bytes. */
+    private static final long[] SIZE_BOUNDS = { 1024, 16 * 1024, 256 * 1024, 4 * 1024 * 1024, Long.MAX_VALUE };
+    private static final String[] SIZE_LABELS = { "< 1 KB", "1-16 KB", "16-256 KB", "256 KB-4 MB", ">= 4 MB" };
+    /** Upper bounds of the class count buckets. */
+    private static final int[] CLASS_BOUNDS = { 0, 1, 4, 16, 64, Integer.MAX_VALUE };
+    private static final String[] CLASS_LABELS = { "0 classes", "1 class", "2-4 classes", "5-16 classes",
+            "17-64 classes", "> 64 classes" };
+    private static final int MAX_TRACKED_CLASSES = 256;
+    private static final String OTHER_CLASSES = "(other classes)";
+
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+
+    /**
+     * Log-linear histogram in the style of HdrHistogram: each power of two is
+     * split into 16 buckets, so any recorded value is reported within 6.25%.
+     */
+    static final class Histogram {
+        private static final int SUB_BUCKET_BITS = 4;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long value) {
+            long v = Math.max(0, value);
+            counts.incrementAndGet(index(v));
+            count.increment();
+            sum.add(v);
+            if (v > max.get()) {
+                max.accumulateAndGet(v, Math::max);
+            }
+        }
+
+        private static int index(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+            int sub = (int) (value >>> exponent - SUB_BUCKET_BITS) & SUB_BUCKETS - 1;
+            return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+        }
+
+        /** Midpoint of the values that fall into bucket {@code index}. */
+        private static long midpoint(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+            int shift = index / SUB_BUCKETS - 1;
+            long lower = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+            return lower + ((1L << shift) >>> 1);
+        }
+
+        Snapshot snapshot() {
+            long[] copy = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                copy[i] = counts.get(i);
+            }
+            return new Snapshot(count.sum(), sum.sum(), max.get(), copy);
+        }
+    }
+
+    /** Point-in-time copy of a histogram. */
+    record Snapshot(long count, long sum, long max, long[] buckets) {
+        double mean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /** Value at quantile {@code q} (0 to 1), or 0 if nothing was recorded. */
+        long percentile(double q) {
+            long total = 0;
+            for (long bucket : buckets) {
+                total += bucket;
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(q * total));
+            if (rank >= total) {
+                return max;
+            }
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    return Math.min(Histogram.midpoint(i), max);
+                }
+            }
+            return max;
+        }
+    }
+
+    /**
+     * One line of the metrics table. {@code latency} is in nanoseconds;
+     * {@code allocated} and {@code hitRate} are null where they do not apply.
+     */
+    record Row(String group, String name, long count, long errors, Snapshot latency, Snapshot allocated,
+            Double hitRate) {
+    }
+
+    /** A stage measurement; closing it records the sample, as an error unless {@link #succeeded()} was called. */
+    final class Sample implements AutoCloseable {
+        private final Stage stage;
+        private final long startNanos = System.nanoTime();
+        private final long startBytes = threadAllocatedBytes();
+        private boolean succeeded;
+
+        private Sample(Stage stage) {
+            this.stage = stage;
+        }
+
+        void succeeded() {
+            succeeded = true;
+        }
+
+        @Override
+        public void close() {
+            State current = state;
+            current.latency.get(stage).record(System.nanoTime() - startNanos);
+            if (startBytes >= 0) {
+                long endBytes = threadAllocatedBytes();
+                if (endBytes >= startBytes) {
+                    current.allocated.get(stage).record(endBytes - startBytes);
+                }
+            }
+            if (!succeeded) {
+                current.errors.get(stage).increment();
+            }
+        }
+    }
+
+    private record Cache(String name, LongSupplier hits, LongSupplier misses) {
+    }
+
+    /** Everything a reset replaces. */
+    private static final class State {
+        final Map<Stage, Histogram> latency = new EnumMap<>(Stage.class);
+        final Map<Stage, Histogram> allocated = new EnumMap<>(Stage.class);
+        final Map<Stage, LongAdder> errors = new EnumMap<>(Stage.class);
+        final Histogram[] bySize = newHistograms(SIZE_BOUNDS.length);
+        final Histogram[] byClassCount = newHistograms(CLASS_BOUNDS.length);
+        final Map<String, Histogram> byRootClass = new ConcurrentHashMap<>();
+        final Map<String, long[]> cacheBaselines = new ConcurrentHashMap<>();
+
+        State() {
+            for (Stage stage : Stage.values()) {
+                latency.put(stage, new Histogram());
+                allocated.put(stage, new Histogram());
+                errors.put(stage, new LongAdder());
+            }
+        }
+
+        private static Histogram[] newHistograms(int n) {
+            Histogram[] histograms = new Histogram[n];
+            for (int i = 0; i < n; i++) {
+                histograms[i] = new Histogram();
+            }
+            return histograms;
+        }
+    }
+
+    private volatile State state = new State();
+    private final List<Cache> caches = new ArrayList<>();
+
+    Sample start(Stage stage) {
+        return new Sample(stage);
+    }
+
+    /** Records a latency measured elsewhere, e.g. class loading inside {@code readObject}. */
+    void record(Stage stage, long nanos) {
+        state.latency.get(stage).record(nanos);
+    }
+
+    /**
+     * Records the end-to-end deserialization of one body, bucketed by its
+     * size, by the number of classes it resolved and by its top-level class.
+     */
+    void recordMessage(int payloadBytes, int classCount, String rootClass, long nanos) {
+        State current = state;
+        int size = 0;
+        while (payloadBytes >= SIZE_BOUNDS[size]) {
+            size++;
+        }
+        int classes = 0;
+        while (classCount > CLASS_BOUNDS[classes]) {
+            classes++;
+        }
+        current.bySize[size].record(nanos);
+        current.byClassCount[classes].record(nanos);
+        Histogram byClass = current.byRootClass.get(rootClass);
+        if (byClass == null) {
+            byClass = current.byRootClass.size() < MAX_TRACKED_CLASSES
+                    ? current.byRootClass.computeIfAbsent(rootClass, k -> new Histogram())
+                    : current.byRootClass.computeIfAbsent(OTHER_CLASSES, k -> new Histogram());
+        }
+        byClass.record(nanos);
+    }
+
+    /** Adds a cache whose hit rate is reported; the counters are read whenever the rows are built. */
+    synchronized void registerCache(String name, LongSupplier hits, LongSupplier misses) {
+        caches.add(new Cache(name, hits, misses));
+    }
+
+    /** Starts counting from zero. Cache counters are kept, but reported relative to this point. */
+    synchronized void reset() {
+        State fresh = new State();
+        for (Cache cache : caches) {
+            fresh.cacheBaselines.put(cache.name(),
+                    new long[] { cache.hits().getAsLong(), cache.misses().getAsLong() });
+        }
+        state = fresh;
+    }
+
+    synchronized List<Row> rows() {
+        State current = state;
+        List<Row> rows = new ArrayList<>();
+        for (Stage stage : Stage.values()) {
+            Snapshot latency = current.latency.get(stage).snapshot();
+            Snapshot allocated = current.allocated.get(stage).snapshot();
+            rows.add(new Row("stage", stage.label, latency.count(), current.errors.get(stage).sum(), latency,
+                    allocated.count() > 0 ? allocated : null, null));
+        }
+        for (int i = 0; i < SIZE_LABELS.length; i++) {
+            rows.add(messageRow("payload size", SIZE_LABELS[i], current.bySize[i]));
+        }
+        for (int i = 0; i < CLASS_LABELS.length; i++) {
+            rows.add(messageRow("class count", CLASS_LABELS[i], current.byClassCount[i]));
+        }
+        current.byRootClass.entrySet().stream()
+                .map(e -> messageRow("top-level class", e.getKey(), e.getValue()))
+                .sorted((a, b) -> Long.compare(b.latency().sum(), a.latency().sum()))
+                .forEach(rows::add);
+        for (Cache cache : caches) {
+            long[] baseline = current.cacheBaselines.getOrDefault(cache.name(), new long[2]);
+            long hits = Math.max(0, cache.hits().getAsLong() - baseline[0]);
+            long misses = Math.max(0, cache.misses().getAsLong() - baseline[1]);
+            long lookups = hits + misses;
+            rows.add(new Row("cache", cache.name(), lookups, 0, null, null,
+                    lookups == 0 ? null : (double) hits / lookups));
+        }
+        return rows;
+    }
+
+    private static Row messageRow(String group, String name, Histogram histogram) {
+        Snapshot latency = histogram.snapshot();
+        return new Row(group, name, latency.count(), 0, latency, null, null);
+    }
+
+    String toCsv() {
+        StringBuilder out = new StringBuilder(
+                "group,name,count,errors,mean_us,p50_us,p90_us,p99_us,max_us,mean_alloc_bytes,p99_alloc_bytes,hit_rate\n");
+        for (Row row : rows()) {
+            out.append(csv(row.group())).append(',').append(csv(row.name())).append(',')
+                    .append(row.count()).append(',').append(row.errors());
+            Snapshot l = row.latency();
+            out.append(',').append(l == null ? "" : micros(l.mean()))
+                    .append(',').append(l == null ? "" : micros(l.percentile(0.5)))
+                    .append(',').append(l == null ? "" : micros(l.percentile(0.9)))
+                    .append(',').append(l == null ? "" : micros(l.percentile(0.99)))
+                    .append(',').append(l == null ? "" : micros(l.max()));
+            Snapshot a = row.allocated();
+            out.append(',').append(a == null ? "" : Long.toString(Math.round(a.mean())))
+                    .append(',').append(a == null ? "" : Long.toString(a.percentile(0.99)));
+            out.append(',').append(row.hitRate() == null ? "" : String.format(Locale.ROOT, "%.4f", row.hitRate()));
+            out.append('\n');
+        }
+        return out.toString();
+    }
+
+    String toJson() {
+        StringBuilder out = new StringBuilder("{\n  \"totalAllocatedBytes\": ").append(totalAllocatedBytes())
+                .append(",\n  \"rows\": [");
+        List<Row> rows = rows();
+        for (int i = 0; i < rows.size(); i++) {
+            Row row = rows.get(i);
+            out.append(i == 0 ? "\n" : ",\n").append("    {\"group\": ").append(json(row.group()))
+                    .append(", \"name\": ").append(json(row.name()))
+                    .append(", \"count\": ").append(row.count())
+                    .append(", \"errors\": ").append(row.errors());
+            Snapshot l = row.latency();
+            if (l != null) {
+                out.append(", \"latencyMicros\": {\"mean\": ").append(micros(l.mean()))
+                        .append(", \"p50\": ").append(micros(l.percentile(0.5)))
+                        .append(", \"p90\": ").append(micros(l.percentile(0.9)))
+                        .append(", \"p99\": ").append(micros(l.percentile(0.99)))
+                        .append(", \"max\": ").append(micros(l.max())).append('}');
+            }
+            Snapshot a = row.allocated();
+            if (a != null) {
+                out.append(", \"allocatedBytes\": {\"mean\": ").append(Math.round(a.mean()))
+                        .append(", \"p99\": ").append(a.percentile(0.99)).append('}');
+            }
+            if (row.hitRate() != null) {
+                out.append(", \"hitRate\": ").append(String.format(Locale.ROOT, "%.4f", row.hitRate()));
+            }
+            out.append('}');
+        }
+        return out.append("\n  ]\n}\n").toString();
+    }
+
+    private static String micros(double nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1000);
+    }
+
+    private static String csv(String value) {
+        return value.indexOf(',') < 0 && value.indexOf('"') < 0 ? value : '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String json(String value) {
+        StringBuilder out = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append(String.format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        return out.append('"').toString();
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported()) {
+            return bean;
+        }
+        return null;
+    }
+
+    /** Bytes allocated so far by the current thread, or -1 if the JVM does not track it for this thread. */
+    private static long threadAllocatedBytes() {
+        return THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() : -1;
+    }
+
+    /** Bytes allocated by all threads since the JVM started, or -1 if unsupported. */
+    static long totalAllocatedBytes() {
+        return THREADS != null ? THREADS.getTotalThreadAllocatedBytes() : -1;
+    }
+}
@@ -0,0 +1,169 @@
+package burp_jdser_ng;
+
+import java.awt.BorderLayout;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import javax.swing.JButton;
+import javax.swing.JFileChooser;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.Timer;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Live view of {@link Metrics}: one row per stage, payload size bucket,
+ * class count bucket, top-level class and cache, refreshed once a second
+ * while the tab is visible, with CSV and JSON export.
+ */
+final class MetricsPanel extends JPanel {
+
+    private static final int REFRESH_INTERVAL_MS = 1000;
+    private static final String[] COLUMNS = { "Group", "Name", "Count", "Errors", "Mean (ms)", "p50 (ms)",
+            "p90 (ms)", "p99 (ms)", "Max (ms)", "Alloc/op", "Hit rate" };
+
+    private final Metrics metrics;
+    private final Consumer<String> errorLog;
+    private final MetricsTableModel model = new MetricsTableModel();
+    private final JLabel allocationLabel = new JLabel();
+    private final Timer refreshTimer;
+    private long lastAllocatedBytes = -1;
+    private long lastRefreshNanos;
+
+    MetricsPanel(Metrics metrics, Consumer<String> errorLog) {
+        super(new BorderLayout());
+        this.metrics = metrics;
+        this.errorLog = errorLog;
+
+        JTable table = new JTable(model);
+        table.setAutoCreateRowSorter(true);
+        add(new JScrollPane(table), BorderLayout.CENTER);
+
+        JPanel buttons = new JPanel();
+        buttons.add(allocationLabel);
+        JButton reset = new JButton("Reset");
+        reset.addActionListener(e -> {
+            metrics.reset();
+            refresh();
+        });
+        buttons.add(reset);
+        JButton exportCsv = new JButton("Export CSV");
+        exportCsv.addActionListener(e -> export("csv", metrics::toCsv));
+        buttons.add(exportCsv);
+        JButton exportJson = new JButton("Export JSON");
+        exportJson.addActionListener(e -> export("json", metrics::toJson));
+        buttons.add(exportJson);
+        add(buttons, BorderLayout.SOUTH);
+
+        refreshTimer = new Timer(REFRESH_INTERVAL_MS, e -> {
+            if (isShowing()) {
+                refresh();
+            }
+        });
+        refreshTimer.start();
+    }
+
+    void dispose() {
+        refreshTimer.stop();
+    }
+
+    private void refresh() {
+        model.setRows(metrics.rows());
+
+        long allocated = Metrics.totalAllocatedBytes();
+        long now = System.nanoTime();
+        if (allocated >= 0 && lastAllocatedBytes >= 0) {
+            double seconds = (now - lastRefreshNanos) / 1e9;
+            allocationLabel.setText(String.format(Locale.ROOT, "JVM allocation: %.1f MB/s",
+                    (allocated - lastAllocatedBytes) / seconds / (1024 * 1024)));
+        }
+        lastAllocatedBytes = allocated;
+        lastRefreshNanos = now;
+    }
+
+    private void export(String extension, Supplier<String> content) {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter(extension.toUpperCase(Locale.ROOT) + " files", extension));
+        chooser.setSelectedFile(new File("jdser-metrics." + extension));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        try {
+            Files.writeString(chooser.getSelectedFile().toPath(), content.get(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            errorLog.accept("Error exporting metrics: " + e);
+        }
+    }
+
+    private static final class MetricsTableModel extends AbstractTableModel {
+        private List<Metrics.Row> rows = List.of();
+
+        void setRows(List<Metrics.Row> rows) {
+            this.rows = rows;
+            fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount() {
+            return rows.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return column == 2 || column == 3 ? Long.class : String.class;
+        }
+
+        @Override
+        public Object getValueAt(int rowIndex, int column) {
+            Metrics.Row row = rows.get(rowIndex);
+            Metrics.Snapshot latency = row.latency();
+            return switch (column) {
+                case 0 -> row.group();
+                case 1 -> row.name();
+                case 2 -> row.count();
+                case 3 -> row.errors();
+                case 4 -> latency == null ? "" : millis(latency.mean());
+                case 5 -> latency == null ? "" : millis(latency.percentile(0.5));
+                case 6 -> latency == null ? "" : millis(latency.percentile(0.9));
+                case 7 -> latency == null ? "" : millis(latency.percentile(0.99));
+                case 8 -> latency == null ? "" : millis(latency.max());
+                case 9 -> row.allocated() == null ? "" : bytes(row.allocated().mean());
+                case 10 -> row.hitRate() == null ? "" : String.format(Locale.ROOT, "%.1f%%", row.hitRate() * 100);
+                default -> "";
+            };
+        }
+
+        private static String millis(double nanos) {
+            return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+        }
+
+        private static String bytes(double bytes) {
+            if (bytes < 1024) {
+                return String.format(Locale.ROOT, "%.0f B", bytes);
+            }
+            if (bytes < 1024 * 1024) {
+                return String.format(Locale.ROOT, "%.1f KB", bytes / 1024);
+            }
+            return String.format(Locale.ROOT, "%.1f MB", bytes / (1024 * 1024));
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package burp_jdser_ng;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Turns a deserialized object graph into editable text and back. Each
+ * codec generation holds one instance per format, so the editors can pick
+ * a format per view without reloading the class path.
+ */
+interface ObjectCodec {
+
+    /** The metrics stage that times {@link #write}. */
+    Metrics.Stage writeStage();
+
+    /** The metrics stage that times {@link #read}. */
+    Metrics.Stage readStage();
+
+    void write(Object object, Writer out) throws IOException;
+
+    /** {@code budget} limits any Java serialization stream embedded in {@code text}. */
+    Object read(String text, DeserializationBudget budget) throws IOException, ClassNotFoundException;
+}
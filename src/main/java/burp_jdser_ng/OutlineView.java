@@ -0,0 +1,187 @@
+package burp_jdser_ng;
+
+import java.awt.Component;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.swing.JOptionPane;
+import javax.swing.JScrollPane;
+import javax.swing.JTree;
+import javax.swing.event.TreeExpansionEvent;
+import javax.swing.event.TreeWillExpandListener;
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.DefaultTreeModel;
+import javax.swing.tree.TreePath;
+
+import burp_jdser_ng.StreamNode.Kind;
+
+/**
+ * Lazily expanded tree over a parsed stream for payloads too large to lay
+ * out as text. Only expanded nodes get tree nodes, and children are added a
+ * page at a time, so building and painting the tree does not grow with the
+ * object graph. The stream is parsed in one class-free pass before the tree
+ * is shown, but that pass stops at the render time budget; a stream too
+ * large for it is shown truncated, ending in the parse error. Primitive and
+ * string values can be edited by double-clicking them; edits are kept as
+ * byte patches against the original body, so the rest of the stream
+ * round-trips untouched.
+ */
+final class OutlineView {
+
+    private static final int PAGE_SIZE = 100;
+
+    private final DefaultTreeModel model = new DefaultTreeModel(new DefaultMutableTreeNode());
+    private final JTree tree = new JTree(model);
+    private final JScrollPane scrollPane = new JScrollPane(tree);
+    private final boolean editable;
+    private final Map<Integer, StreamPatcher.Patch> patches = new TreeMap<>();
+
+    /** Tree node for one stream element whose children are created on first expansion. */
+    private static final class ElementNode extends DefaultMutableTreeNode {
+        final StreamNode element;
+        int loaded;
+        String editedValue;
+
+        ElementNode(StreamNode element) {
+            super(element);
+            this.element = element;
+        }
+
+        @Override
+        public boolean isLeaf() {
+            return element.children().isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            if (editedValue == null) {
+                return String.format("%08x  %s", element.start(), element.describe());
+            }
+            String value = element.kind() == Kind.STRING ? "STRING " + StreamNode.quote(editedValue)
+                    : element.type() + " = " + editedValue;
+            return String.format("%08x  %s%s  (edited)", element.start(),
+                    element.name() != null ? element.name() + ": " : "", value);
+        }
+    }
+
+    /** Placeholder that loads the next page of its parent's children when double-clicked. */
+    private static final class MoreNode extends DefaultMutableTreeNode {
+        MoreNode(int remaining) {
+            super("... " + remaining + " more (double-click to show the next " + Math.min(remaining, PAGE_SIZE) + ")");
+        }
+
+        @Override
+        public boolean isLeaf() {
+            return true;
+        }
+    }
+
+    OutlineView(boolean editable) {
+        this.editable = editable;
+        tree.setRootVisible(true);
+        tree.addTreeWillExpandListener(new TreeWillExpandListener() {
+            @Override
+            public void treeWillExpand(TreeExpansionEvent event) {
+                if (event.getPath().getLastPathComponent() instanceof ElementNode node && node.loaded == 0) {
+                    loadPage(node);
+                }
+            }
+
+            @Override
+            public void treeWillCollapse(TreeExpansionEvent event) {
+            }
+        });
+        tree.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() != 2) {
+                    return;
+                }
+                TreePath path = tree.getPathForLocation(e.getX(), e.getY());
+                if (path == null) {
+                    return;
+                }
+                Object clicked = path.getLastPathComponent();
+                if (clicked instanceof MoreNode more && more.getParent() instanceof ElementNode parent) {
+                    parent.remove(more);
+                    loadPage(parent);
+                } else if (clicked instanceof ElementNode node) {
+                    edit(node);
+                }
+            }
+        });
+    }
+
+    Component component() {
+        return scrollPane;
+    }
+
+    /** Shows a message instead of a tree, e.g. while the stream is parsed. Must be called on the Swing thread. */
+    void showMessage(String message) {
+        patches.clear();
+        model.setRoot(new DefaultMutableTreeNode(message));
+    }
+
+    /** Shows the outline of {@code root} and drops any pending edits. Must be called on the Swing thread. */
+    void show(StreamNode root) {
+        patches.clear();
+        ElementNode rootNode = new ElementNode(root);
+        loadPage(rootNode);
+        if (root.error() != null) {
+            rootNode.add(new DefaultMutableTreeNode("!! Parsing stopped " + root.error()));
+        }
+        model.setRoot(rootNode);
+        tree.expandPath(new TreePath(rootNode));
+    }
+
+    boolean isModified() {
+        return !patches.isEmpty();
+    }
+
+    List<StreamPatcher.Patch> patches() {
+        return new ArrayList<>(patches.values());
+    }
+
+    private void loadPage(ElementNode node) {
+        List<StreamNode> children = node.element.children();
+        int end = Math.min(children.size(), node.loaded + PAGE_SIZE);
+        for (int i = node.loaded; i < end; i++) {
+            node.add(new ElementNode(children.get(i)));
+        }
+        node.loaded = end;
+        if (end < children.size()) {
+            node.add(new MoreNode(children.size() - end));
+        }
+        if (node.getParent() != null || model.getRoot() == node) {
+            model.nodeStructureChanged(node);
+        }
+    }
+
+    private void edit(ElementNode node) {
+        StreamNode element = node.element;
+        if (!editable || element.end() < 0
+                || element.kind() != Kind.PRIMITIVE && element.kind() != Kind.STRING) {
+            return;
+        }
+        String current = node.editedValue != null ? node.editedValue : element.value();
+        String label = (element.name() != null ? element.name() : "value") + " (" + element.type() + ")";
+        String value = (String) JOptionPane.showInputDialog(tree, "New value for " + label + ":", "Edit value",
+                JOptionPane.PLAIN_MESSAGE, null, null, current);
+        if (value == null) {
+            return;
+        }
+        try {
+            byte[] encoded = element.kind() == Kind.STRING ? StreamPatcher.encodeString(value)
+                    : StreamPatcher.encodePrimitive(element.type(), value.trim());
+            patches.put(element.start(), new StreamPatcher.Patch(element.start(), element.end(), encoded));
+            node.editedValue = element.kind() == Kind.STRING ? value : value.trim();
+            model.nodeChanged(node);
+        } catch (IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(tree, e.getMessage(), "Invalid value", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+}
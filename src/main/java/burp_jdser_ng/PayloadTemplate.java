@@ -0,0 +1,155 @@
+package burp_jdser_ng;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import burp_jdser_ng.SerializedContentDetector.ByteRange;
+import burp_jdser_ng.StreamNode.Kind;
+
+/**
+ * A captured serialized body compiled once into injection points on its
+ * primitive and string values. Producing a body for a payload only encodes
+ * the payload and splices it between the untouched bytes around the value,
+ * so no reflection, XStream or ObjectOutputStream runs per payload.
+ *
+ * <p>A string that is referenced again later in the stream shares its
+ * handle, so injecting into it changes every reference, as it would in the
+ * deserialized object graph.
+ */
+final class PayloadTemplate {
+
+    /**
+     * An injectable value. {@code path} names it by the fields and indexes
+     * leading to it from the top-level content, e.g. {@code $0.address.street},
+     * {@code $0.tags[2]}, or {@code $0{3}} for the fourth element of custom
+     * writeObject data.
+     */
+    record InjectionPoint(String path, Kind kind, String type, int start, int end, String baseValue) {
+        boolean matches(String target) {
+            return path.equals(target) || path.endsWith("." + target);
+        }
+    }
+
+    private final byte[] body;
+    private final List<InjectionPoint> points;
+
+    private PayloadTemplate(byte[] body, List<InjectionPoint> points) {
+        this.body = body;
+        this.points = List.copyOf(points);
+    }
+
+    /** Compiles {@code body}, or returns null if it contains no serialization stream. */
+    static PayloadTemplate compile(byte[] body) {
+        ByteRange range = SerializedContentDetector.findSerializedRange(body);
+        if (range == null) {
+            return null;
+        }
+        StreamNode root = StreamParser.parse(body, range.startInclusive(), range.endExclusive());
+        List<InjectionPoint> points = new ArrayList<>();
+        List<StreamNode> contents = root.children();
+        for (int i = 0; i < contents.size(); i++) {
+            collect(contents.get(i), "$" + i, points);
+        }
+        return new PayloadTemplate(body, points);
+    }
+
+    private static void collect(StreamNode node, String path, List<InjectionPoint> points) {
+        if (node.end() < 0) {
+            return;
+        }
+        switch (node.kind()) {
+            case STRING, PRIMITIVE -> points.add(
+                    new InjectionPoint(path, node.kind(), node.type(), node.start(), node.end(), node.value()));
+            case OBJECT -> {
+                for (StreamNode child : node.children()) {
+                    if (child.kind() == Kind.CLASS_DATA) {
+                        collectClassData(child, path, points);
+                    }
+                }
+            }
+            case ARRAY -> {
+                for (StreamNode element : node.children()) {
+                    if (element.name() != null) {
+                        collect(element, path + element.name(), points);
+                    }
+                }
+            }
+            case EXCEPTION -> {
+                if (!node.children().isEmpty()) {
+                    collect(node.children().get(0), path, points);
+                }
+            }
+            default -> {
+                // class descriptors, references, nulls and raw block data carry no injectable value
+            }
+        }
+    }
+
+    private static void collectClassData(StreamNode classData, String path, List<InjectionPoint> points) {
+        for (StreamNode child : classData.children()) {
+            if (child.kind() == Kind.ANNOTATION) {
+                List<StreamNode> contents = child.children();
+                for (int i = 0; i < contents.size(); i++) {
+                    collect(contents.get(i), path + "{" + i + "}", points);
+                }
+            } else if (child.name() != null) {
+                collect(child, path + "." + child.name(), points);
+            }
+        }
+    }
+
+    boolean isCompiledFrom(byte[] body) {
+        return Arrays.equals(this.body, body);
+    }
+
+    List<InjectionPoint> points() {
+        return points;
+    }
+
+    /** Index of the first point matching {@code target}, or of the first string if it is blank; -1 if none. */
+    int indexOf(String target) {
+        for (int i = 0; i < points.size(); i++) {
+            InjectionPoint point = points.get(i);
+            if (target == null || target.isBlank() ? point.kind() == Kind.STRING : point.matches(target.trim())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the body with {@code value} encoded into point {@code index}.
+     *
+     * @throws IllegalArgumentException if {@code value} is not valid for a primitive point
+     */
+    byte[] render(int index, String value) {
+        InjectionPoint point = points.get(index);
+        byte[] encoded = encode(point, value);
+        byte[] out = new byte[body.length - (point.end() - point.start()) + encoded.length];
+        System.arraycopy(body, 0, out, 0, point.start());
+        System.arraycopy(encoded, 0, out, point.start(), encoded.length);
+        System.arraycopy(body, point.end(), out, point.start() + encoded.length, body.length - point.end());
+        return out;
+    }
+
+    /** Offset within the body at which the encoded characters or bits of {@code value} start. */
+    int valueOffset(int index, String value) {
+        InjectionPoint point = points.get(index);
+        if (point.kind() != Kind.STRING) {
+            return point.start();
+        }
+        return point.start() + StreamPatcher.stringHeaderLength(StreamPatcher.modifiedUtf8Length(value));
+    }
+
+    /** Length of {@code value} once encoded, excluding any type code and length prefix. */
+    int valueLength(int index, String value) {
+        InjectionPoint point = points.get(index);
+        return point.kind() == Kind.STRING ? StreamPatcher.modifiedUtf8Length(value) : encode(point, value).length;
+    }
+
+    private static byte[] encode(InjectionPoint point, String value) {
+        return point.kind() == Kind.STRING ? StreamPatcher.encodeString(value)
+                : StreamPatcher.encodePrimitive(point.type(), value.trim());
+    }
+}
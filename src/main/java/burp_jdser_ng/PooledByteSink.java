@@ -0,0 +1,201 @@
+package burp_jdser_ng;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Growable byte buffer that renders write into directly, borrowed from a
+ * small shared pool and returned on close. Text written through
+ * {@link #writer()} is encoded to UTF-8 straight into the buffer, so a
+ * render holds one growing byte copy of its output instead of a String,
+ * its builder and the encoded bytes.
+ *
+ * <p>Renders run on virtual threads that never run a second render, so the
+ * pool is shared rather than per thread. Only buffers of up to 1 MB are
+ * pooled, through soft references, so the pool stays small, gives way to
+ * memory pressure and lives outside the render memory budget without
+ * skewing it; larger outputs are held by the render cache anyway.
+ */
+final class PooledByteSink extends OutputStream {
+
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+    private static final int MAX_POOLED_CAPACITY = 1024 * 1024;
+    private static final ArrayBlockingQueue<SoftReference<byte[]>> POOL = new ArrayBlockingQueue<>(4);
+
+    /** Thrown once a write would take the sink past its limit. */
+    static final class LimitExceededException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        LimitExceededException(long limit) {
+            super("output exceeds " + limit + " bytes");
+        }
+    }
+
+    private final long limit;
+    private byte[] buffer;
+    private int count;
+    private boolean limitExceeded;
+
+    private PooledByteSink(long limit) {
+        this.limit = limit;
+        byte[] pooled = null;
+        for (SoftReference<byte[]> ref = POOL.poll(); ref != null && pooled == null; ref = POOL.poll()) {
+            pooled = ref.get();
+        }
+        this.buffer = pooled != null ? pooled : new byte[INITIAL_CAPACITY];
+    }
+
+    /** Borrows a sink that fails once more than {@code limit} bytes are written; 0 means no limit. */
+    static PooledByteSink acquire(long limit) {
+        return new PooledByteSink(limit > 0 ? limit : Integer.MAX_VALUE - 8);
+    }
+
+    /** Drops the pooled buffers, e.g. when the extension is unloaded. */
+    static void clearPool() {
+        POOL.clear();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureCapacity(1);
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureCapacity(len);
+        System.arraycopy(b, off, buffer, count, len);
+        count += len;
+    }
+
+    private void ensureCapacity(int extra) throws IOException {
+        long needed = (long) count + extra;
+        if (needed > limit) {
+            limitExceeded = true;
+            throw new LimitExceededException(limit);
+        }
+        if (needed > buffer.length) {
+            long grown = Math.max(needed, (long) buffer.length * 2);
+            buffer = Arrays.copyOf(buffer, (int) Math.min(grown, limit));
+        }
+    }
+
+    /** True if writing stopped because the output limit was reached. */
+    boolean isLimitExceeded() {
+        return limitExceeded;
+    }
+
+    int size() {
+        return count;
+    }
+
+    /** Exact-size copy of the bytes written so far. */
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer, count);
+    }
+
+    /** A writer that encodes to UTF-8 directly into this sink. */
+    Writer writer() {
+        return new Utf8Writer();
+    }
+
+    @Override
+    public void close() {
+        if (buffer != null && buffer.length <= MAX_POOLED_CAPACITY) {
+            POOL.offer(new SoftReference<>(buffer));
+        }
+        buffer = null;
+    }
+
+    private final class Utf8Writer extends Writer {
+
+        private char highSurrogate;
+
+        @Override
+        public void write(int c) throws IOException {
+            encode((char) c);
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            ensureCapacity(len);
+            for (int i = off, end = off + len; i < end; i++) {
+                char c = cbuf[i];
+                if (c < 0x80 && highSurrogate == 0 && count < buffer.length) {
+                    buffer[count++] = (byte) c;
+                } else {
+                    encode(c);
+                }
+            }
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            ensureCapacity(len);
+            for (int i = off, end = off + len; i < end; i++) {
+                char c = str.charAt(i);
+                if (c < 0x80 && highSurrogate == 0 && count < buffer.length) {
+                    buffer[count++] = (byte) c;
+                } else {
+                    encode(c);
+                }
+            }
+        }
+
+        private void encode(char c) throws IOException {
+            if (highSurrogate != 0) {
+                char high = highSurrogate;
+                highSurrogate = 0;
+                if (Character.isLowSurrogate(c)) {
+                    int codePoint = Character.toCodePoint(high, c);
+                    ensureCapacity(4);
+                    buffer[count++] = (byte) (0xF0 | codePoint >> 18);
+                    buffer[count++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                    buffer[count++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                    buffer[count++] = (byte) (0x80 | codePoint & 0x3F);
+                    return;
+                }
+                writeReplacement();
+            }
+            if (c < 0x80) {
+                ensureCapacity(1);
+                buffer[count++] = (byte) c;
+            } else if (c < 0x800) {
+                ensureCapacity(2);
+                buffer[count++] = (byte) (0xC0 | c >> 6);
+                buffer[count++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c)) {
+                highSurrogate = c;
+            } else if (Character.isLowSurrogate(c)) {
+                writeReplacement();
+            } else {
+                ensureCapacity(3);
+                buffer[count++] = (byte) (0xE0 | c >> 12);
+                buffer[count++] = (byte) (0x80 | c >> 6 & 0x3F);
+                buffer[count++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+
+        /** Unpaired surrogates become '?', as String.getBytes(UTF_8) does. */
+        private void writeReplacement() throws IOException {
+            ensureCapacity(1);
+            buffer[count++] = '?';
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (highSurrogate != 0) {
+                highSurrogate = 0;
+                writeReplacement();
+            }
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package burp_jdser_ng;
+
+import java.awt.BorderLayout;
+import java.awt.GridLayout;
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import javax.swing.JButton;
+import javax.swing.JFileChooser;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.JTextArea;
+import javax.swing.JTextField;
+import javax.swing.Timer;
+import javax.swing.table.AbstractTableModel;
+
+import burp.api.montoya.persistence.Preferences;
+
+/**
+ * Editor for the {@link ClassPathProfiles}: each profile has a name, the
+ * host patterns it applies to and its own JARs. The first profile matching
+ * a message's host is used; messages of other hosts use the class path
+ * above. Profiles are saved in the Burp preferences.
+ */
+final class ProfilePanel extends JPanel {
+
+    private static final int REFRESH_INTERVAL_MS = 2000;
+    private static final String PREF_NAME = "jdser:profiles";
+    private static final String[] COLUMNS = { "Profile", "Hosts", "JARs", "Loaded" };
+
+    private final ClassPathProfiles profiles;
+    private final Preferences preferences;
+    private final Consumer<String> errorLog;
+    private final ProfileTableModel model = new ProfileTableModel();
+    private final JTable table = new JTable(model);
+    private final Timer refreshTimer;
+    private Runnable profilesChangedListener = () -> {
+    };
+
+    ProfilePanel(ClassPathProfiles profiles, Preferences preferences, Consumer<String> errorLog) {
+        super(new BorderLayout());
+        this.profiles = profiles;
+        this.preferences = preferences;
+        this.errorLog = errorLog;
+
+        add(new JScrollPane(table), BorderLayout.CENTER);
+
+        JPanel buttons = new JPanel();
+        buttons.add(new JLabel("Up to " + ClassPathProfiles.MAX_LOADED + " profiles stay loaded"));
+        addButton(buttons, "Add", () -> edit(-1));
+        addButton(buttons, "Edit", () -> {
+            if (table.getSelectedRow() >= 0) {
+                edit(table.getSelectedRow());
+            }
+        });
+        addButton(buttons, "Move up", this::moveUp);
+        addButton(buttons, "Remove", () -> {
+            int row = table.getSelectedRow();
+            if (row >= 0) {
+                List<ClassPathProfile> updated = new ArrayList<>(profiles.profiles());
+                updated.remove(row);
+                update(updated);
+            }
+        });
+        add(buttons, BorderLayout.SOUTH);
+
+        String stored = preferences.getString(PREF_NAME);
+        if (stored != null) {
+            profiles.setProfiles(ClassPathProfile.decode(stored));
+        }
+        model.setRows(profiles.profiles());
+
+        refreshTimer = new Timer(REFRESH_INTERVAL_MS, e -> {
+            if (isShowing() && model.getRowCount() > 0) {
+                model.fireTableRowsUpdated(0, model.getRowCount() - 1);
+            }
+        });
+        refreshTimer.start();
+    }
+
+    /** Called on the EDT after profiles are added, changed or removed. */
+    void setProfilesChangedListener(Runnable listener) {
+        this.profilesChangedListener = listener;
+    }
+
+    void dispose() {
+        refreshTimer.stop();
+    }
+
+    private static void addButton(JPanel panel, String text, Runnable action) {
+        JButton button = new JButton(text);
+        button.addActionListener(e -> action.run());
+        panel.add(button);
+    }
+
+    private void moveUp() {
+        int row = table.getSelectedRow();
+        if (row <= 0) {
+            return;
+        }
+        List<ClassPathProfile> updated = new ArrayList<>(profiles.profiles());
+        updated.add(row - 1, updated.remove(row));
+        update(updated);
+        table.setRowSelectionInterval(row - 1, row - 1);
+    }
+
+    private void edit(int row) {
+        List<ClassPathProfile> current = profiles.profiles();
+        ClassPathProfile existing = row >= 0 ? current.get(row) : null;
+
+        JTextField nameField = new JTextField(existing != null ? existing.name() : "", 24);
+        JTextField hostsField = new JTextField(existing != null ? String.join(", ", existing.hostPatterns()) : "", 24);
+        hostsField.setToolTipText("Comma separated hosts, e.g. app.example.com, *.example.com:8443");
+        JTextArea jarsArea = new JTextArea(8, 48);
+        if (existing != null) {
+            existing.jars().forEach(jar -> jarsArea.append(jar + "\n"));
+        }
+        JButton browse = new JButton("Add JARs...");
+        browse.addActionListener(e -> chooseJars().forEach(jar -> jarsArea.append(jar + "\n")));
+
+        JPanel fields = new JPanel(new GridLayout(4, 1));
+        fields.add(new JLabel("Name:"));
+        fields.add(nameField);
+        fields.add(new JLabel("Hosts:"));
+        fields.add(hostsField);
+        JPanel jars = new JPanel(new BorderLayout());
+        jars.add(new JLabel("JARs, one per line:"), BorderLayout.NORTH);
+        jars.add(new JScrollPane(jarsArea), BorderLayout.CENTER);
+        jars.add(browse, BorderLayout.SOUTH);
+        JPanel form = new JPanel(new BorderLayout());
+        form.add(fields, BorderLayout.NORTH);
+        form.add(jars, BorderLayout.CENTER);
+
+        if (JOptionPane.showConfirmDialog(this, form, existing != null ? "Edit profile" : "Add profile",
+                JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE) != JOptionPane.OK_OPTION) {
+            return;
+        }
+
+        String name = nameField.getText().trim().replaceAll("[\\t\\n]", " ");
+        if (name.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "A profile needs a name.");
+            return;
+        }
+        for (int i = 0; i < current.size(); i++) {
+            if (i != row && current.get(i).name().equals(name)) {
+                JOptionPane.showMessageDialog(this, "A profile named " + name + " already exists.");
+                return;
+            }
+        }
+        List<URL> jarUrls = new ArrayList<>();
+        for (String line : jarsArea.getText().split("\n")) {
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            try {
+                URL url = line.startsWith("file:") ? new URI(line).toURL() : new File(line).toURI().toURL();
+                if (!jarUrls.contains(url)) {
+                    jarUrls.add(url);
+                }
+            } catch (URISyntaxException | MalformedURLException | IllegalArgumentException e) {
+                errorLog.accept("Skipped invalid JAR in profile " + name + ": " + line);
+            }
+        }
+
+        ClassPathProfile profile = new ClassPathProfile(name,
+                ClassPathProfile.splitPatterns(hostsField.getText().replaceAll("[\\t\\n]", " ")), jarUrls);
+        List<ClassPathProfile> updated = new ArrayList<>(current);
+        if (row >= 0) {
+            updated.set(row, profile);
+        } else {
+            updated.add(profile);
+        }
+        update(updated);
+    }
+
+    /** JARs picked in a file chooser; folders contribute every JAR below them. */
+    private List<URL> chooseJars() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
+        chooser.setMultiSelectionEnabled(true);
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return List.of();
+        }
+        List<URL> jars = new ArrayList<>();
+        for (File selected : chooser.getSelectedFiles()) {
+            try (Stream<Path> paths = Files.walk(selected.toPath())) {
+                for (Path path : paths.filter(Files::isRegularFile)
+                        .filter(p -> p.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".jar"))
+                        .sorted().toList()) {
+                    jars.add(path.toUri().toURL());
+                }
+            } catch (IOException e) {
+                errorLog.accept("Error reading " + selected + ": " + e);
+            }
+        }
+        return jars;
+    }
+
+    private void update(List<ClassPathProfile> updated) {
+        profiles.setProfiles(updated);
+        preferences.setString(PREF_NAME, ClassPathProfile.encode(updated));
+        model.setRows(profiles.profiles());
+        profilesChangedListener.run();
+    }
+
+    private final class ProfileTableModel extends AbstractTableModel {
+        private List<ClassPathProfile> rows = List.of();
+
+        void setRows(List<ClassPathProfile> rows) {
+            this.rows = rows;
+            fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount() {
+            return rows.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return switch (column) {
+                case 2 -> Integer.class;
+                case 3 -> Boolean.class;
+                default -> String.class;
+            };
+        }
+
+        @Override
+        public Object getValueAt(int rowIndex, int column) {
+            ClassPathProfile row = rows.get(rowIndex);
+            return switch (column) {
+                case 0 -> row.name();
+                case 1 -> String.join(", ", row.hostPatterns());
+                case 2 -> row.jars().size();
+                case 3 -> profiles.isLoaded(row.name());
+                default -> "";
+            };
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package burp_jdser_ng;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import burp_jdser_ng.SerializedContentDetector.ByteRange;
+
+/**
+ * Process-wide cache of detection and rendering results, shared by every
+ * editor instance. Entries are keyed by a body fingerprint plus the class
+ * loader generation and evicted least-recently-used by byte weight.
+ * <p>
+ * The fingerprint is fast but not collision resistant, and bodies come
+ * from the target. An entry with a rendering therefore keeps the body it
+ * was rendered from and is only returned for an equal body. Entries that
+ * only hold a detection range are not checked: a crafted collision can
+ * at worst make the body's own bytes be read at the wrong offsets.
+ * <p>
+ * The weight limit is the memory budget for all rendered content: text
+ * that open editors are showing is pinned against the same budget, so the
+ * cache shrinks as editors hold more. Renderings are only softly reachable
+ * from the cache, so the collector can also reclaim them under pressure;
+ * a reclaimed entry keeps its detection range and is rendered again.
+ */
+final class RenderCache {
+
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class,
+            ByteOrder.LITTLE_ENDIAN);
+
+    private static final long ENTRY_OVERHEAD = 96;
+
+    record Key(long generation, int length, long hash) {
+    }
+
+    record Entry(ByteRange range, byte[] xml) {
+    }
+
+    /**
+     * A cached range and, while it has not been reclaimed, its rendering and
+     * the body it was rendered from.
+     */
+    private static final class Slot {
+        final ByteRange range;
+        byte[] body;
+        Rendering xml;
+
+        Slot(ByteRange range) {
+            this.range = range;
+        }
+
+        long weight() {
+            return ENTRY_OVERHEAD + (xml == null ? 0 : xml.size + body.length);
+        }
+    }
+
+    private static final class Rendering extends SoftReference<byte[]> {
+        final Slot slot;
+        final int size;
+
+        Rendering(byte[] xml, Slot slot, ReferenceQueue<byte[]> queue) {
+            super(xml, queue);
+            this.slot = slot;
+            this.size = xml.length;
+        }
+    }
+
+    /** Memory usage for the JDSer tab. */
+    record Usage(long maxBytes, long cachedBytes, int renderings, long pinnedBytes, int pins, long reclaimed) {
+    }
+
+    private final LinkedHashMap<Key, Slot> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final ReferenceQueue<byte[]> reclaimedQueue = new ReferenceQueue<>();
+    private long maxWeight;
+    private long weight;
+    private int renderings;
+    private long pinned;
+    private int pins;
+    private long reclaimed;
+    private long hits;
+    private long misses;
+
+    RenderCache(long maxWeight) {
+        this.maxWeight = maxWeight;
+    }
+
+    static Key key(long generation, byte[] data) {
+        return new Key(generation, data.length, fingerprint(data));
+    }
+
+    /** 64-bit hash of the whole body, read eight bytes at a time. */
+    static long fingerprint(byte[] data) {
+        long h = 0x9E3779B97F4A7C15L ^ data.length;
+        int i = 0;
+        for (; i + Long.BYTES <= data.length; i += Long.BYTES) {
+            h = mix(h ^ (long) LONGS.get(data, i));
+        }
+        for (; i < data.length; i++) {
+            h = mix(h ^ (data[i] & 0xFFL));
+        }
+        return h;
+    }
+
+    private static long mix(long h) {
+        h *= 0xBF58476D1CE4E5B9L;
+        return h ^ (h >>> 31);
+    }
+
+    /** The entry for {@code data}, counting a hit or a miss. */
+    synchronized Entry get(Key key, byte[] data) {
+        Entry entry = lookup(key, data);
+        if (entry == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return entry;
+    }
+
+    /**
+     * As {@link #get}, but a miss is not counted. For a quick check that is
+     * followed by {@link #get} when it misses, so the miss counts once.
+     */
+    synchronized Entry probe(Key key, byte[] data) {
+        Entry entry = lookup(key, data);
+        if (entry != null) {
+            hits++;
+        }
+        return entry;
+    }
+
+    private Entry lookup(Key key, byte[] data) {
+        Slot slot = entries.get(key);
+        if (slot == null || slot.body != null && !Arrays.equals(slot.body, data)) {
+            return null;
+        }
+        byte[] xml = null;
+        if (slot.xml != null) {
+            xml = slot.xml.get();
+            if (xml == null) {
+                dropRendering(slot);
+            }
+        }
+        return new Entry(slot.range, xml);
+    }
+
+    synchronized void putRange(Key key, ByteRange range) {
+        if (!entries.containsKey(key)) {
+            put(key, new Slot(range));
+        }
+    }
+
+    /** Caches the rendering of {@code body}; the cache keeps {@code body}, which must not change afterwards. */
+    synchronized void putRendered(Key key, ByteRange range, byte[] body, byte[] xml) {
+        Slot slot = new Slot(range);
+        slot.body = body;
+        slot.xml = new Rendering(xml, slot, reclaimedQueue);
+        put(key, slot);
+    }
+
+    private void put(Key key, Slot slot) {
+        drainReclaimed();
+        if (slot.weight() > maxWeight - pinned) {
+            return;
+        }
+        Slot previous = entries.put(key, slot);
+        if (previous != null) {
+            remove(previous);
+        }
+        weight += slot.weight();
+        if (slot.xml != null) {
+            renderings++;
+        }
+        evict();
+    }
+
+    private void evict() {
+        Iterator<Slot> eldest = entries.values().iterator();
+        while (weight + pinned > maxWeight && eldest.hasNext()) {
+            remove(eldest.next());
+            eldest.remove();
+        }
+    }
+
+    /** Accounts for a slot leaving the map; the caller removes it. */
+    private void remove(Slot slot) {
+        if (slot.xml != null) {
+            slot.xml.clear();
+            renderings--;
+        }
+        weight -= slot.weight();
+        slot.xml = null;
+        slot.body = null;
+    }
+
+    /** Keeps the range of a slot whose rendering the collector reclaimed; the range needs no body check. */
+    private void dropRendering(Slot slot) {
+        weight -= slot.xml.size + slot.body.length;
+        renderings--;
+        reclaimed++;
+        slot.xml = null;
+        slot.body = null;
+    }
+
+    /** Takes renderings the collector has cleared out of the weight. */
+    private void drainReclaimed() {
+        for (Reference<? extends byte[]> ref; (ref = reclaimedQueue.poll()) != null;) {
+            Rendering rendering = (Rendering) ref;
+            if (rendering.slot.xml == rendering) {
+                dropRendering(rendering.slot);
+            }
+        }
+    }
+
+    /**
+     * Counts {@code bytes} that an editor is showing against the budget,
+     * evicting cached entries to make room. Undo with {@link #unpin}.
+     */
+    synchronized void pin(long bytes) {
+        pinned += bytes;
+        pins++;
+        evict();
+    }
+
+    synchronized void unpin(long bytes) {
+        pinned -= bytes;
+        pins--;
+    }
+
+    synchronized void setMaxWeight(long maxWeight) {
+        this.maxWeight = maxWeight;
+        drainReclaimed();
+        evict();
+    }
+
+    synchronized void invalidateAll() {
+        entries.values().forEach(this::remove);
+        entries.clear();
+        weight = 0;
+    }
+
+    synchronized long weight() {
+        return weight;
+    }
+
+    synchronized Usage usage() {
+        drainReclaimed();
+        return new Usage(maxWeight, weight, renderings, pinned, pins, reclaimed);
+    }
+
+    synchronized long hits() {
+        return hits;
+    }
+
+    synchronized long misses() {
+        return misses;
+    }
+}
@@ -0,0 +1,180 @@
+package burp_jdser_ng;
+
+import java.util.Locale;
+import java.util.function.Function;
+
+import burp.api.montoya.core.ByteArray;
+
+final class SerializedContentDetector {
+
+    static final byte[] SERIALIZE_MAGIC = new byte[] { (byte) 0xAC, (byte) 0xED };
+
+    // Bodies of these types are only treated as serialized when the stream starts the body.
+    private static final String[] NON_SERIALIZED_CONTENT_TYPES = {
+            "text/", "image/", "audio/", "video/", "font/",
+            "application/json", "application/javascript", "application/xml",
+            "application/pdf", "application/wasm", "application/zip", "application/gzip",
+            "application/x-www-form-urlencoded", "+json", "+xml" };
+
+    private static final int MAX_LEADING_NEWLINES = 4;
+
+    record ByteRange(int startInclusive, int endExclusive) {
+        int length() {
+            return endExclusive - startInclusive;
+        }
+    }
+
+    private SerializedContentDetector() {
+    }
+
+    /**
+     * Cheap detection on a Montoya body without copying it. Checks the first
+     * bytes and the Content-Type before falling back to a full scan. Multipart
+     * bodies are copied and handed to {@code fullScan}.
+     */
+    static boolean isSerialized(ByteArray body, String contentType, Function<byte[], ByteRange> fullScan) {
+        if (body == null) {
+            return false;
+        }
+        int length = body.length();
+        if (length < SERIALIZE_MAGIC.length) {
+            return false;
+        }
+
+        int start = 0;
+        while (start < length && start < MAX_LEADING_NEWLINES
+                && (body.getByte(start) == '\r' || body.getByte(start) == '\n')) {
+            start++;
+        }
+        if (start + 1 < length && body.getByte(start) == SERIALIZE_MAGIC[0]
+                && body.getByte(start + 1) == SERIALIZE_MAGIC[1]) {
+            return true;
+        }
+
+        if (length >= 4 && body.getByte(0) == '-' && body.getByte(1) == '-') {
+            // multipart parts need the full structural walk
+            return fullScan.apply(body.getBytes()) != null;
+        }
+
+        if (isNonSerializedContentType(contentType)) {
+            return false;
+        }
+
+        return body.indexOf(ByteArray.byteArray(SERIALIZE_MAGIC), true, 0, length) >= 0;
+    }
+
+    private static boolean isNonSerializedContentType(String contentType) {
+        if (contentType == null || contentType.isBlank()) {
+            return false;
+        }
+        String mediaType = contentType.toLowerCase(Locale.ROOT);
+        int parameters = mediaType.indexOf(';');
+        if (parameters >= 0) {
+            mediaType = mediaType.substring(0, parameters);
+        }
+        mediaType = mediaType.trim();
+        for (String type : NON_SERIALIZED_CONTENT_TYPES) {
+            if (type.startsWith("+") ? mediaType.endsWith(type) : mediaType.startsWith(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int skipLeadingCrLf(byte[] data, int startInclusive, int endExclusive) {
+        int i = startInclusive;
+        while (i < endExclusive && (data[i] == '\r' || data[i] == '\n')) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean hasSerializeMagicAt(byte[] data, int offset, int endExclusive) {
+        return offset >= 0
+                && offset + SERIALIZE_MAGIC.length <= endExclusive
+                && data[offset] == SERIALIZE_MAGIC[0]
+                && data[offset + 1] == SERIALIZE_MAGIC[1];
+    }
+
+    /**
+     * Walks the multipart body line by line in a single pass. Only line starts
+     * are compared against the boundary, so every byte is visited once by the
+     * newline scan no matter how many parts the body has.
+     */
+    private static ByteRange findSerializedRangeInMultipart(byte[] body) {
+        if (body == null || body.length < 4 || body[0] != '-' || body[1] != '-') {
+            return null;
+        }
+
+        int boundaryLineEnd = ByteScanner.indexOf(body, (byte) '\n', 0, body.length);
+        if (boundaryLineEnd < 0) {
+            return null;
+        }
+        int boundaryEnd = boundaryLineEnd > 0 && body[boundaryLineEnd - 1] == '\r' ? boundaryLineEnd - 1
+                : boundaryLineEnd;
+        if (boundaryEnd <= 2) {
+            return null;
+        }
+
+        byte[] delimiter = new byte[boundaryEnd];
+        System.arraycopy(body, 0, delimiter, 0, boundaryEnd);
+
+        boolean inHeaders = true;
+        int partBodyStart = -1;
+        int lineStart = boundaryLineEnd + 1;
+        while (lineStart < body.length) {
+            if (inHeaders) {
+                if (body[lineStart] == '\n') {
+                    partBodyStart = lineStart + 1;
+                    inHeaders = false;
+                } else if (body[lineStart] == '\r' && lineStart + 1 < body.length && body[lineStart + 1] == '\n') {
+                    partBodyStart = lineStart + 2;
+                    inHeaders = false;
+                }
+            } else if (ByteScanner.startsWith(body, lineStart, body.length, delimiter)) {
+                int partBodyEndExclusive = lineStart - 1; // the '\n' before "--boundary"
+                if (partBodyEndExclusive > partBodyStart && body[partBodyEndExclusive - 1] == '\r') {
+                    partBodyEndExclusive--;
+                }
+
+                int candidateStart = skipLeadingCrLf(body, partBodyStart, partBodyEndExclusive);
+                if (hasSerializeMagicAt(body, candidateStart, partBodyEndExclusive)) {
+                    return new ByteRange(candidateStart, partBodyEndExclusive);
+                }
+
+                // final boundary: --boundary--
+                int afterDelimiter = lineStart + delimiter.length;
+                if (afterDelimiter + 1 < body.length && body[afterDelimiter] == '-'
+                        && body[afterDelimiter + 1] == '-') {
+                    return null;
+                }
+                inHeaders = true;
+            }
+
+            int lineEnd = ByteScanner.indexOf(body, (byte) '\n', lineStart, body.length);
+            if (lineEnd < 0) {
+                return null;
+            }
+            lineStart = lineEnd + 1;
+        }
+
+        return null;
+    }
+
+    static ByteRange findSerializedRange(byte[] data) {
+        if (data == null) {
+            return null;
+        }
+
+        ByteRange multipartRange = findSerializedRangeInMultipart(data);
+        if (multipartRange != null) {
+            return multipartRange;
+        }
+
+        int index = ByteScanner.indexOfMagic(data, 0, data.length);
+        if (index < 0) {
+            return null;
+        }
+        return new ByteRange(index, data.length);
+    }
+}
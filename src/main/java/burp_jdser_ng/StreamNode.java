@@ -0,0 +1,168 @@
+package burp_jdser_ng;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One element of a Java serialization stream as read by {@link StreamParser},
+ * with the byte range it occupies in the parsed buffer. Nodes are filled in
+ * while the stream is parsed, so a node whose {@link #end()} is -1 was still
+ * being read when the stream ended or turned out to be malformed.
+ */
+final class StreamNode {
+
+    enum Kind {
+        STREAM, OBJECT, CLASS_DESC, PROXY_CLASS_DESC, FIELD_DESC, CLASS_DATA, ANNOTATION, PRIMITIVE, STRING, ARRAY,
+        ENUM, CLASS, REFERENCE, NULL, BLOCK_DATA, EXCEPTION, RESET
+    }
+
+    static final int NO_HANDLE = -1;
+
+    private final Kind kind;
+    private final int start;
+    private int end = -1;
+    private String name;
+    private String type;
+    private String value;
+    private int handle = NO_HANDLE;
+    private String error;
+    private List<StreamNode> children = List.of();
+
+    StreamNode(Kind kind, int start) {
+        this.kind = kind;
+        this.start = start;
+    }
+
+    Kind kind() {
+        return kind;
+    }
+
+    /** Offset of the first byte of this node, including its type code. */
+    int start() {
+        return start;
+    }
+
+    /** Offset just past the last byte of this node, or -1 if it is incomplete. */
+    int end() {
+        return end;
+    }
+
+    /** Field name or array index this node is the value of, or null. */
+    String name() {
+        return name;
+    }
+
+    /** Class name for objects and descriptors, Java type for fields and primitives. */
+    String type() {
+        return type;
+    }
+
+    /** Decoded value for primitives, strings and enum constants; a summary for the rest. */
+    String value() {
+        return value;
+    }
+
+    int handle() {
+        return handle;
+    }
+
+    /** Why parsing stopped, set on the stream root only. */
+    String error() {
+        return error;
+    }
+
+    List<StreamNode> children() {
+        return children;
+    }
+
+    void finish(int end) {
+        this.end = end;
+    }
+
+    void setName(String name) {
+        this.name = name;
+    }
+
+    void setType(String type) {
+        this.type = type;
+    }
+
+    void setValue(String value) {
+        this.value = value;
+    }
+
+    void setHandle(int handle) {
+        this.handle = handle;
+    }
+
+    void setError(String error) {
+        this.error = error;
+    }
+
+    void add(StreamNode child) {
+        if (children.isEmpty()) {
+            children = new ArrayList<>(4);
+        }
+        children.add(child);
+    }
+
+    /** One line description of this node without its children. */
+    String describe() {
+        StringBuilder sb = new StringBuilder();
+        if (name != null) {
+            sb.append(name).append(": ");
+        }
+        switch (kind) {
+            case STREAM -> sb.append("STREAM ").append(value);
+            case OBJECT -> sb.append("OBJECT ").append(type);
+            case CLASS_DESC, PROXY_CLASS_DESC -> sb.append("CLASSDESC ").append(type).append("  ").append(value);
+            case FIELD_DESC -> sb.append("field ").append(type);
+            case CLASS_DATA -> sb.append("CLASSDATA ").append(type);
+            case ANNOTATION -> sb.append("ANNOTATION");
+            case PRIMITIVE -> sb.append(type).append(" = ").append(value);
+            case STRING -> sb.append("STRING ").append(quote(value));
+            case ARRAY -> sb.append("ARRAY ").append(type).append(value != null ? " " + value : "");
+            case ENUM -> sb.append("ENUM ").append(type).append('.').append(value);
+            case CLASS -> sb.append("CLASS ").append(type);
+            case REFERENCE -> sb.append("REFERENCE ").append(String.format("#%x", handle)).append(" -> ").append(type);
+            case NULL -> sb.append("null");
+            case BLOCK_DATA -> sb.append("BLOCKDATA ").append(value);
+            case EXCEPTION -> sb.append("EXCEPTION");
+            case RESET -> sb.append("RESET");
+        }
+        if (handle != NO_HANDLE && kind != Kind.REFERENCE) {
+            sb.append(String.format("  #%x", handle));
+        }
+        return sb.toString();
+    }
+
+    /** Longer strings are shown truncated and cannot be edited in place. */
+    static final int MAX_QUOTED_CHARS = 256;
+
+    static String quote(String s) {
+        StringBuilder sb = new StringBuilder(Math.min(s.length(), MAX_QUOTED_CHARS) + 2).append('"');
+        int limit = Math.min(s.length(), MAX_QUOTED_CHARS);
+        for (int i = 0; i < limit; i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20 || c == 0x7F) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        sb.append('"');
+        if (s.length() > limit) {
+            sb.append(" ... (").append(s.length() - limit).append(" more chars)");
+        }
+        return sb.toString();
+    }
+}
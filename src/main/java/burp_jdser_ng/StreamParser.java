@@ -0,0 +1,718 @@
+package burp_jdser_ng;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.StreamCorruptedException;
+import java.io.UTFDataFormatException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import burp_jdser_ng.StreamNode.Kind;
+
+/**
+ * Reads the Java object serialization grammar directly from the bytes in a
+ * single pass, without loading or instantiating any class. The result is a
+ * {@link StreamNode} tree with the byte offset of every element, so a stream
+ * can be inspected even when none of its classes are on the class path.
+ *
+ * <p>Primitive arrays become a single node with a preview of their elements;
+ * the offset of element {@code i} is implied by the array's element size.
+ * Externalizable objects written with the old protocol version 1 cannot be
+ * delimited without their class and stop the parse.
+ */
+final class StreamParser {
+
+    static final int STREAM_MAGIC = 0xACED;
+
+    private static final byte TC_NULL = 0x70;
+    private static final byte TC_REFERENCE = 0x71;
+    private static final byte TC_CLASSDESC = 0x72;
+    private static final byte TC_OBJECT = 0x73;
+    private static final byte TC_STRING = 0x74;
+    private static final byte TC_ARRAY = 0x75;
+    private static final byte TC_CLASS = 0x76;
+    private static final byte TC_BLOCKDATA = 0x77;
+    private static final byte TC_ENDBLOCKDATA = 0x78;
+    private static final byte TC_RESET = 0x79;
+    private static final byte TC_BLOCKDATALONG = 0x7A;
+    private static final byte TC_EXCEPTION = 0x7B;
+    private static final byte TC_LONGSTRING = 0x7C;
+    private static final byte TC_PROXYCLASSDESC = 0x7D;
+    private static final byte TC_ENUM = 0x7E;
+
+    static final int BASE_WIRE_HANDLE = 0x7E0000;
+
+    private static final int SC_WRITE_METHOD = 0x01;
+    private static final int SC_SERIALIZABLE = 0x02;
+    private static final int SC_EXTERNALIZABLE = 0x04;
+    private static final int SC_BLOCK_DATA = 0x08;
+    private static final int SC_ENUM = 0x10;
+
+    static final int DEFAULT_MAX_DEPTH = 1_000;
+    static final int DEFAULT_MAX_NODES = 5_000_000;
+
+    private static final int PREVIEW_ELEMENTS = 32;
+    private static final int PREVIEW_BYTES = 64;
+
+    private record FieldDesc(char typeCode, String name, String type) {
+    }
+
+    /** Class descriptor as far as the stream describes it. */
+    private static final class ClassDesc {
+        final String name;
+        final int flags;
+        final List<FieldDesc> fields;
+        ClassDesc superDesc;
+
+        ClassDesc(String name, int flags, List<FieldDesc> fields) {
+            this.name = name;
+            this.flags = flags;
+            this.fields = fields;
+        }
+    }
+
+    private final byte[] data;
+    private final int limit;
+    private final int maxDepth;
+    private final int maxNodes;
+    private final long timeMillis;
+    private final long deadlineNanos;
+    private final List<Object> handles = new ArrayList<>();
+    /**
+     * Nodes in creation order whose parents may not hold them yet: the
+     * unfinished ones are the chain being read, finished ones on top are
+     * dropped on the next {@link #node}.
+     */
+    private final Deque<StreamNode> open = new ArrayDeque<>();
+    private int pos;
+    private int depth;
+    private int nodes;
+
+    private StreamParser(byte[] data, int from, int to, int maxDepth, int maxNodes, long timeMillis) {
+        this.data = data;
+        this.pos = from;
+        this.limit = to;
+        this.maxDepth = maxDepth;
+        this.maxNodes = maxNodes;
+        this.timeMillis = timeMillis;
+        this.deadlineNanos = System.nanoTime() + timeMillis * 1_000_000L;
+    }
+
+    static StreamNode parse(byte[] data, int from, int to) {
+        return parse(data, from, to, DEFAULT_MAX_DEPTH, DEFAULT_MAX_NODES);
+    }
+
+    /**
+     * Parses the stream in {@code data[from, to)}. Never throws for malformed
+     * input: parsing stops at the first problem, which is reported through
+     * {@link StreamNode#error()} on the returned root, and everything read up
+     * to that point is kept.
+     */
+    static StreamNode parse(byte[] data, int from, int to, int maxDepth, int maxNodes) {
+        return parse(data, from, to, maxDepth, maxNodes, 0);
+    }
+
+    /**
+     * As {@link #parse(byte[], int, int, int, int)}, but stops once
+     * {@code timeMillis} have passed (0 for no limit) and returns what was
+     * read by then, so a caller can show a truncated tree in bounded time.
+     */
+    static StreamNode parse(byte[] data, int from, int to, int maxDepth, int maxNodes, long timeMillis) {
+        return new StreamParser(data, from, to, maxDepth, maxNodes, timeMillis).parseStream();
+    }
+
+    private StreamNode parseStream() {
+        StreamNode root = new StreamNode(Kind.STREAM, pos);
+        try {
+            if (u2() != STREAM_MAGIC) {
+                throw new StreamCorruptedException("invalid stream header");
+            }
+            root.setValue("version " + u2());
+            while (pos < limit) {
+                root.add(readContent());
+            }
+        } catch (IOException | RuntimeException e) {
+            root.setError(String.format("at offset 0x%x: %s", pos, e.getMessage() != null ? e.getMessage() : e));
+            keepUnfinished(root);
+        }
+        root.finish(pos);
+        return root;
+    }
+
+    /**
+     * Attaches the elements that were being read when parsing stopped, which
+     * are only added to their parents once complete, so everything read up
+     * to that point stays in the tree. They keep an end of -1.
+     */
+    private void keepUnfinished(StreamNode root) {
+        while (!open.isEmpty() && open.peekLast().end() >= 0) {
+            open.removeLast();
+        }
+        StreamNode parent = root;
+        for (StreamNode node : open) {
+            List<StreamNode> siblings = parent.children();
+            if (siblings.isEmpty() || siblings.get(siblings.size() - 1) != node) {
+                parent.add(node);
+            }
+            parent = node;
+        }
+        open.clear();
+    }
+
+    private StreamNode node(Kind kind, int start) throws IOException {
+        if (++nodes > maxNodes) {
+            throw new StreamCorruptedException("more than " + maxNodes + " elements");
+        }
+        if ((nodes & 0xFFF) == 0) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("parsing interrupted");
+            }
+            if (timeMillis > 0 && System.nanoTime() - deadlineNanos > 0) {
+                throw new InterruptedIOException("after the time budget of " + timeMillis
+                        + " ms; the elements read so far are shown");
+            }
+        }
+        while (!open.isEmpty() && open.peekLast().end() >= 0) {
+            open.removeLast();
+        }
+        StreamNode node = new StreamNode(kind, start);
+        open.addLast(node);
+        return node;
+    }
+
+    private StreamNode readContent() throws IOException {
+        int start = pos;
+        byte tc = peek();
+        if (tc == TC_BLOCKDATA || tc == TC_BLOCKDATALONG) {
+            pos++;
+            int length = tc == TC_BLOCKDATA ? u1() : s4();
+            if (length < 0) {
+                throw new StreamCorruptedException("negative block data length " + length);
+            }
+            need(length);
+            StreamNode block = node(Kind.BLOCK_DATA, start);
+            block.setValue(length + " bytes " + hex(pos, length));
+            pos += length;
+            block.finish(pos);
+            return block;
+        }
+        if (tc == TC_RESET) {
+            pos++;
+            handles.clear();
+            StreamNode reset = node(Kind.RESET, start);
+            reset.finish(pos);
+            return reset;
+        }
+        return readObject(null);
+    }
+
+    private StreamNode readObject(String name) throws IOException {
+        while (peek() == TC_RESET) {
+            pos++;
+            handles.clear();
+        }
+        if (++depth > maxDepth) {
+            throw new StreamCorruptedException("nesting deeper than " + maxDepth);
+        }
+        try {
+            StreamNode node = readObjectBody();
+            node.setName(name);
+            return node;
+        } finally {
+            depth--;
+        }
+    }
+
+    private StreamNode readObjectBody() throws IOException {
+        int start = pos;
+        byte tc = u1Byte();
+        switch (tc) {
+            case TC_NULL -> {
+                StreamNode node = node(Kind.NULL, start);
+                node.finish(pos);
+                return node;
+            }
+            case TC_REFERENCE -> {
+                return readReference(start);
+            }
+            case TC_CLASSDESC, TC_PROXYCLASSDESC -> {
+                pos = start;
+                StreamNode holder = new StreamNode(Kind.ANNOTATION, start);
+                readClassDesc(holder);
+                return holder.children().get(0);
+            }
+            case TC_OBJECT -> {
+                return readNewObject(start);
+            }
+            case TC_STRING, TC_LONGSTRING -> {
+                StreamNode node = node(Kind.STRING, start);
+                node.setType("java.lang.String");
+                node.setHandle(assign(node));
+                node.setValue(utf(tc == TC_STRING ? u2() : s8()));
+                node.finish(pos);
+                return node;
+            }
+            case TC_ARRAY -> {
+                return readNewArray(start);
+            }
+            case TC_CLASS -> {
+                StreamNode node = node(Kind.CLASS, start);
+                ClassDesc desc = readClassDesc(node);
+                node.setType(desc == null ? null : displayType(desc.name));
+                node.setHandle(assign(node));
+                node.finish(pos);
+                return node;
+            }
+            case TC_ENUM -> {
+                StreamNode node = node(Kind.ENUM, start);
+                ClassDesc desc = readClassDesc(node);
+                if (desc == null || (desc.flags & SC_ENUM) == 0 && (desc.superDesc == null
+                        || (desc.superDesc.flags & SC_ENUM) == 0)) {
+                    throw new StreamCorruptedException("enum constant without an enum descriptor");
+                }
+                node.setType(desc.name);
+                node.setHandle(assign(node));
+                node.setValue(readStringValue());
+                node.finish(pos);
+                return node;
+            }
+            case TC_EXCEPTION -> {
+                handles.clear();
+                StreamNode node = node(Kind.EXCEPTION, start);
+                node.add(readObject(null));
+                handles.clear();
+                node.finish(pos);
+                return node;
+            }
+            default -> throw new StreamCorruptedException(String.format("invalid type code: %02X", tc));
+        }
+    }
+
+    private StreamNode readReference(int start) throws IOException {
+        int handle = s4();
+        Object target = lookup(handle);
+        StreamNode node = node(Kind.REFERENCE, start);
+        node.setHandle(handle);
+        if (target instanceof ClassDesc desc) {
+            node.setType(displayType(desc.name));
+        } else {
+            StreamNode referenced = (StreamNode) target;
+            node.setType(referenced.kind() == Kind.STRING ? "java.lang.String" : referenced.type());
+            if (referenced.kind() == Kind.STRING || referenced.kind() == Kind.ENUM) {
+                node.setValue(referenced.value());
+            }
+        }
+        node.finish(pos);
+        return node;
+    }
+
+    /**
+     * Reads a class descriptor, a reference to one, or null, adds its node
+     * to {@code parent} and returns the descriptor. Superclass descriptors
+     * nest, so they count against the depth limit like objects do.
+     */
+    private ClassDesc readClassDesc(StreamNode parent) throws IOException {
+        if (++depth > maxDepth) {
+            throw new StreamCorruptedException("nesting deeper than " + maxDepth);
+        }
+        try {
+            return readClassDescBody(parent);
+        } finally {
+            depth--;
+        }
+    }
+
+    private ClassDesc readClassDescBody(StreamNode parent) throws IOException {
+        int start = pos;
+        byte tc = u1Byte();
+        switch (tc) {
+            case TC_NULL -> {
+                return null;
+            }
+            case TC_REFERENCE -> {
+                StreamNode reference = readReference(start);
+                parent.add(reference);
+                if (lookup(reference.handle()) instanceof ClassDesc desc) {
+                    return desc;
+                }
+                throw new StreamCorruptedException("reference to a non class descriptor");
+            }
+            case TC_CLASSDESC -> {
+                StreamNode node = node(Kind.CLASS_DESC, start);
+                parent.add(node);
+                String name = utf(u2());
+                long serialVersionUid = s8();
+                int handleIndex = reserve();
+                int flags = u1();
+                int fieldCount = u2();
+                List<FieldDesc> fields = new ArrayList<>(fieldCount);
+                for (int i = 0; i < fieldCount; i++) {
+                    int fieldStart = pos;
+                    char typeCode = (char) u1();
+                    String fieldName = utf(u2());
+                    String fieldType = switch (typeCode) {
+                        case 'B', 'C', 'D', 'F', 'I', 'J', 'S', 'Z' -> displayType(String.valueOf(typeCode));
+                        case 'L', '[' -> displayType(readStringValue());
+                        default -> throw new StreamCorruptedException("invalid field type code: " + typeCode);
+                    };
+                    fields.add(new FieldDesc(typeCode, fieldName, fieldType));
+                    StreamNode field = node(Kind.FIELD_DESC, fieldStart);
+                    field.setName(fieldName);
+                    field.setType(fieldType);
+                    field.finish(pos);
+                    node.add(field);
+                }
+                ClassDesc desc = new ClassDesc(name, flags, fields);
+                handles.set(handleIndex, desc);
+                node.setType(name);
+                node.setHandle(BASE_WIRE_HANDLE + handleIndex);
+                node.setValue(String.format("serialVersionUID=%d flags=%s", serialVersionUid, describeFlags(flags)));
+                readAnnotation(node);
+                desc.superDesc = checkSuperDesc(desc, readClassDesc(node));
+                node.finish(pos);
+                return desc;
+            }
+            case TC_PROXYCLASSDESC -> {
+                StreamNode node = node(Kind.PROXY_CLASS_DESC, start);
+                parent.add(node);
+                int handleIndex = reserve();
+                int count = s4();
+                if (count < 0) {
+                    throw new StreamCorruptedException("negative proxy interface count " + count);
+                }
+                StringBuilder interfaces = new StringBuilder();
+                for (int i = 0; i < count; i++) {
+                    interfaces.append(i == 0 ? "" : ", ").append(utf(u2()));
+                }
+                ClassDesc desc = new ClassDesc("Proxy[" + interfaces + "]", SC_SERIALIZABLE, List.of());
+                handles.set(handleIndex, desc);
+                node.setType(desc.name);
+                node.setHandle(BASE_WIRE_HANDLE + handleIndex);
+                node.setValue("proxy");
+                readAnnotation(node);
+                desc.superDesc = checkSuperDesc(desc, readClassDesc(node));
+                node.finish(pos);
+                return desc;
+            }
+            default -> throw new StreamCorruptedException(String.format("invalid class descriptor type code: %02X", tc));
+        }
+    }
+
+    /**
+     * A descriptor's handle is assigned before its superclass is read, so a
+     * stream can name the descriptor, or a subclass of it, as its own
+     * superclass. Such chains, and chains longer than the depth limit, are
+     * rejected.
+     */
+    private ClassDesc checkSuperDesc(ClassDesc desc, ClassDesc superDesc) throws IOException {
+        int length = 1;
+        for (ClassDesc d = superDesc; d != null; d = d.superDesc) {
+            if (d == desc) {
+                throw new StreamCorruptedException("class descriptor " + desc.name + " is its own superclass");
+            }
+            if (++length > maxDepth) {
+                throw new StreamCorruptedException("class hierarchy deeper than " + maxDepth);
+            }
+        }
+        return superDesc;
+    }
+
+    private StreamNode readNewObject(int start) throws IOException {
+        StreamNode node = node(Kind.OBJECT, start);
+        ClassDesc desc = readClassDesc(node);
+        if (desc == null) {
+            throw new StreamCorruptedException("object without a class descriptor");
+        }
+        node.setType(desc.name);
+        node.setHandle(assign(node));
+
+        Deque<ClassDesc> hierarchy = new ArrayDeque<>();
+        for (ClassDesc d = desc; d != null; d = d.superDesc) {
+            hierarchy.addFirst(d);
+        }
+        for (ClassDesc d : hierarchy) {
+            if ((d.flags & SC_EXTERNALIZABLE) != 0) {
+                if ((d.flags & SC_BLOCK_DATA) == 0) {
+                    throw new StreamCorruptedException(
+                            "externalizable " + d.name + " uses protocol version 1 and cannot be read without its class");
+                }
+                StreamNode external = node(Kind.CLASS_DATA, pos);
+                external.setType(d.name);
+                node.add(external);
+                readAnnotation(external);
+                external.finish(pos);
+            } else if ((d.flags & SC_SERIALIZABLE) != 0) {
+                StreamNode classData = node(Kind.CLASS_DATA, pos);
+                classData.setType(d.name);
+                node.add(classData);
+                for (FieldDesc field : d.fields) {
+                    classData.add(readValue(field));
+                }
+                if ((d.flags & SC_WRITE_METHOD) != 0) {
+                    readAnnotation(classData);
+                }
+                classData.finish(pos);
+            }
+        }
+        node.finish(pos);
+        return node;
+    }
+
+    private StreamNode readValue(FieldDesc field) throws IOException {
+        if (field.typeCode() == 'L' || field.typeCode() == '[') {
+            return readObject(field.name());
+        }
+        StreamNode node = node(Kind.PRIMITIVE, pos);
+        node.setName(field.name());
+        node.setType(field.type());
+        node.setValue(readPrimitive(field.typeCode()));
+        node.finish(pos);
+        return node;
+    }
+
+    private String readPrimitive(char typeCode) throws IOException {
+        return switch (typeCode) {
+            case 'B' -> Byte.toString((byte) u1());
+            case 'C' -> quoteChar((char) u2());
+            case 'D' -> Double.toString(Double.longBitsToDouble(s8()));
+            case 'F' -> Float.toString(Float.intBitsToFloat(s4()));
+            case 'I' -> Integer.toString(s4());
+            case 'J' -> Long.toString(s8());
+            case 'S' -> Short.toString((short) u2());
+            case 'Z' -> Boolean.toString(u1() != 0);
+            default -> throw new StreamCorruptedException("invalid primitive type code: " + typeCode);
+        };
+    }
+
+    private StreamNode readNewArray(int start) throws IOException {
+        StreamNode node = node(Kind.ARRAY, start);
+        ClassDesc desc = readClassDesc(node);
+        if (desc == null || desc.name.length() < 2 || desc.name.charAt(0) != '[') {
+            throw new StreamCorruptedException("array without an array class descriptor");
+        }
+        node.setType(displayType(desc.name));
+        node.setHandle(assign(node));
+        int length = s4();
+        if (length < 0) {
+            throw new StreamCorruptedException("negative array length " + length);
+        }
+        node.setType(displayType(desc.name.substring(1)) + "[" + length + "]");
+
+        char elementType = desc.name.charAt(1);
+        int width = primitiveWidth(elementType);
+        if (width > 0) {
+            need((long) length * width);
+            node.setValue(elementType == 'B' ? hex(pos, length) : previewPrimitives(elementType, length));
+            pos += length * width;
+        } else {
+            for (int i = 0; i < length; i++) {
+                node.add(readObject("[" + i + "]"));
+            }
+        }
+        node.finish(pos);
+        return node;
+    }
+
+    private String previewPrimitives(char elementType, int length) throws IOException {
+        StringBuilder sb = new StringBuilder("{");
+        int shown = Math.min(length, PREVIEW_ELEMENTS);
+        int elements = pos;
+        for (int i = 0; i < shown; i++) {
+            sb.append(i == 0 ? "" : ", ").append(readPrimitive(elementType));
+        }
+        pos = elements;
+        if (length > shown) {
+            sb.append(", ... (").append(length - shown).append(" more)");
+        }
+        return sb.append('}').toString();
+    }
+
+    /** Reads class annotation or object annotation contents up to TC_ENDBLOCKDATA. */
+    private void readAnnotation(StreamNode parent) throws IOException {
+        if (peek() == TC_ENDBLOCKDATA) {
+            pos++;
+            return;
+        }
+        StreamNode annotation = node(Kind.ANNOTATION, pos);
+        parent.add(annotation);
+        while (peek() != TC_ENDBLOCKDATA) {
+            annotation.add(readContent());
+        }
+        pos++;
+        annotation.finish(pos);
+    }
+
+    /** Reads an object that must be a string, such as a field type or enum constant name. */
+    private String readStringValue() throws IOException {
+        StreamNode node = readObject(null);
+        if (node.kind() == Kind.STRING || node.kind() == Kind.REFERENCE && "java.lang.String".equals(node.type())) {
+            return node.value();
+        }
+        throw new StreamCorruptedException("expected a string but found " + node.kind());
+    }
+
+    private int assign(Object entry) {
+        handles.add(entry);
+        return BASE_WIRE_HANDLE + handles.size() - 1;
+    }
+
+    private int reserve() {
+        handles.add(null);
+        return handles.size() - 1;
+    }
+
+    private Object lookup(int handle) throws IOException {
+        int index = handle - BASE_WIRE_HANDLE;
+        if (index < 0 || index >= handles.size() || handles.get(index) == null) {
+            throw new StreamCorruptedException(String.format("invalid handle value: %08X", handle));
+        }
+        return handles.get(index);
+    }
+
+    private void need(long bytes) throws IOException {
+        if (bytes > limit - pos) {
+            throw new EOFException("stream ends " + (bytes - (limit - pos)) + " byte(s) early");
+        }
+    }
+
+    private byte peek() throws IOException {
+        need(1);
+        return data[pos];
+    }
+
+    private byte u1Byte() throws IOException {
+        need(1);
+        return data[pos++];
+    }
+
+    private int u1() throws IOException {
+        return u1Byte() & 0xFF;
+    }
+
+    private int u2() throws IOException {
+        need(2);
+        int value = (data[pos] & 0xFF) << 8 | data[pos + 1] & 0xFF;
+        pos += 2;
+        return value;
+    }
+
+    private int s4() throws IOException {
+        need(4);
+        int value = (data[pos] & 0xFF) << 24 | (data[pos + 1] & 0xFF) << 16 | (data[pos + 2] & 0xFF) << 8
+                | data[pos + 3] & 0xFF;
+        pos += 4;
+        return value;
+    }
+
+    private long s8() throws IOException {
+        return (long) s4() << 32 | s4() & 0xFFFFFFFFL;
+    }
+
+    /** Decodes modified UTF-8 as written by DataOutput.writeUTF. */
+    private String utf(long length) throws IOException {
+        if (length < 0 || length > Integer.MAX_VALUE) {
+            throw new StreamCorruptedException("invalid string length " + length);
+        }
+        need(length);
+        int end = pos + (int) length;
+        char[] chars = new char[(int) length];
+        int count = 0;
+        int i = pos;
+        while (i < end) {
+            int b = data[i] & 0xFF;
+            if (b < 0x80) {
+                chars[count++] = (char) b;
+                i++;
+            } else if ((b & 0xE0) == 0xC0 && i + 1 < end && (data[i + 1] & 0xC0) == 0x80) {
+                chars[count++] = (char) ((b & 0x1F) << 6 | data[i + 1] & 0x3F);
+                i += 2;
+            } else if ((b & 0xF0) == 0xE0 && i + 2 < end && (data[i + 1] & 0xC0) == 0x80
+                    && (data[i + 2] & 0xC0) == 0x80) {
+                chars[count++] = (char) ((b & 0x0F) << 12 | (data[i + 1] & 0x3F) << 6 | data[i + 2] & 0x3F);
+                i += 3;
+            } else {
+                pos = i;
+                throw new UTFDataFormatException("malformed modified UTF-8");
+            }
+        }
+        pos = end;
+        return new String(chars, 0, count);
+    }
+
+    private String hex(int offset, int length) {
+        StringBuilder sb = new StringBuilder(Math.min(length, PREVIEW_BYTES) * 2 + 24);
+        int shown = Math.min(length, PREVIEW_BYTES);
+        for (int i = 0; i < shown; i++) {
+            sb.append(Character.forDigit((data[offset + i] >> 4) & 0xF, 16))
+                    .append(Character.forDigit(data[offset + i] & 0xF, 16));
+        }
+        if (length > shown) {
+            sb.append(" ... (").append(length - shown).append(" more)");
+        }
+        return sb.toString();
+    }
+
+    private static String quoteChar(char c) {
+        return c >= 0x20 && c < 0x7F ? "'" + c + "'" : String.format("'\\u%04x'", (int) c);
+    }
+
+    private static int primitiveWidth(char typeCode) {
+        return switch (typeCode) {
+            case 'B', 'Z' -> 1;
+            case 'C', 'S' -> 2;
+            case 'F', 'I' -> 4;
+            case 'D', 'J' -> 8;
+            default -> 0;
+        };
+    }
+
+    private static String describeFlags(int flags) {
+        List<String> names = new ArrayList<>();
+        if ((flags & SC_WRITE_METHOD) != 0) {
+            names.add("WRITE_METHOD");
+        }
+        if ((flags & SC_SERIALIZABLE) != 0) {
+            names.add("SERIALIZABLE");
+        }
+        if ((flags & SC_EXTERNALIZABLE) != 0) {
+            names.add("EXTERNALIZABLE");
+        }
+        if ((flags & SC_BLOCK_DATA) != 0) {
+            names.add("BLOCK_DATA");
+        }
+        if ((flags & SC_ENUM) != 0) {
+            names.add("ENUM");
+        }
+        return names.isEmpty() ? "0" : String.join("|", names);
+    }
+
+    /**
+     * Turns a field signature or array class name such as {@code I},
+     * {@code Ljava/lang/String;} or {@code [[Ljava.util.Map;} into Java
+     * source form.
+     */
+    static String displayType(String descriptor) {
+        int dims = 0;
+        while (dims < descriptor.length() && descriptor.charAt(dims) == '[') {
+            dims++;
+        }
+        String base = descriptor.substring(dims);
+        String name = switch (base) {
+            case "B" -> "byte";
+            case "C" -> "char";
+            case "D" -> "double";
+            case "F" -> "float";
+            case "I" -> "int";
+            case "J" -> "long";
+            case "S" -> "short";
+            case "Z" -> "boolean";
+            default -> base.startsWith("L") && base.endsWith(";")
+                    ? base.substring(1, base.length() - 1).replace('/', '.')
+                    : base.replace('/', '.');
+        };
+        return name + "[]".repeat(dims);
+    }
+}
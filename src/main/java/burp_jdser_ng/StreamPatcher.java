@@ -0,0 +1,255 @@
+package burp_jdser_ng;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import burp_jdser_ng.StreamNode.Kind;
+
+/**
+ * Turns edits of the structure view back into the original stream by
+ * rewriting only the bytes of the changed primitives and strings. Handles,
+ * class descriptors and everything else keep their original wire form, and
+ * the cost scales with the edit rather than with the object graph.
+ */
+final class StreamPatcher {
+
+    /** Replaces {@code data[start, end)} with {@code replacement}. */
+    record Patch(int start, int end, byte[] replacement) {
+    }
+
+    private StreamPatcher() {
+    }
+
+    /**
+     * Compares {@code edited} with the rendering of {@code root} line by line
+     * and returns a patch for every changed primitive or string value.
+     *
+     * @throws IllegalArgumentException if a line that is not an editable value
+     *                                  was changed, or lines were added or removed
+     */
+    static List<Patch> diff(StreamNode root, String edited) {
+        String[] lines = edited.split("\r?\n", -1);
+        List<Patch> patches = new ArrayList<>();
+        int consumed = diff(root, 0, lines, 0, patches);
+        for (int i = consumed; i < lines.length; i++) {
+            if (!lines[i].isEmpty() && !lines[i].startsWith("!! ")) {
+                throw new IllegalArgumentException("lines cannot be added to the structure view");
+            }
+        }
+        return patches;
+    }
+
+    private static int diff(StreamNode node, int depth, String[] lines, int index, List<Patch> patches) {
+        if (index >= lines.length) {
+            throw new IllegalArgumentException("lines cannot be removed from the structure view");
+        }
+        String original = StructureRenderer.line(node, depth);
+        if (!original.equals(lines[index])) {
+            patches.add(patch(node, depth, lines[index]));
+        }
+        int next = index + 1;
+        for (StreamNode child : node.children()) {
+            next = diff(child, depth + 1, lines, next, patches);
+        }
+        return next;
+    }
+
+    private static Patch patch(StreamNode node, int depth, String line) {
+        String prefix = StructureRenderer.linePrefix(node, depth) + (node.name() != null ? node.name() + ": " : "");
+        if (node.end() < 0 || !line.startsWith(prefix)) {
+            throw new IllegalArgumentException("only values can be edited, not " + describe(node));
+        }
+        String rest = line.substring(prefix.length());
+
+        if (node.kind() == Kind.PRIMITIVE) {
+            String valuePrefix = node.type() + " = ";
+            if (!rest.startsWith(valuePrefix)) {
+                throw new IllegalArgumentException("only the value of " + describe(node) + " can be edited");
+            }
+            return new Patch(node.start(), node.end(),
+                    encodePrimitive(node.type(), rest.substring(valuePrefix.length()).trim()));
+        }
+        if (node.kind() == Kind.STRING) {
+            if (node.value().length() > StreamNode.MAX_QUOTED_CHARS) {
+                throw new IllegalArgumentException(describe(node) + " is too long to edit in the structure view");
+            }
+            String handleSuffix = String.format("  #%x", node.handle());
+            if (!rest.startsWith("STRING ") || !rest.endsWith(handleSuffix)) {
+                throw new IllegalArgumentException("only the value of " + describe(node) + " can be edited");
+            }
+            String literal = rest.substring("STRING ".length(), rest.length() - handleSuffix.length()).trim();
+            return new Patch(node.start(), node.end(), encodeString(unquote(literal)));
+        }
+        throw new IllegalArgumentException("only primitive and string values can be edited, not "
+                + describe(node));
+    }
+
+    /** Copies {@code data} once, splicing in the replacements. Patches must not overlap. */
+    static byte[] apply(byte[] data, List<Patch> patches) {
+        List<Patch> sorted = new ArrayList<>(patches);
+        sorted.sort(Comparator.comparingInt(Patch::start));
+        long size = data.length;
+        for (Patch patch : sorted) {
+            size += patch.replacement().length - (patch.end() - patch.start());
+        }
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("patched stream is too large");
+        }
+
+        byte[] out = new byte[(int) size];
+        int read = 0;
+        int write = 0;
+        for (Patch patch : sorted) {
+            if (patch.start() < read) {
+                throw new IllegalArgumentException("overlapping edits at offset " + patch.start());
+            }
+            int unchanged = patch.start() - read;
+            System.arraycopy(data, read, out, write, unchanged);
+            write += unchanged;
+            System.arraycopy(patch.replacement(), 0, out, write, patch.replacement().length);
+            write += patch.replacement().length;
+            read = patch.end();
+        }
+        System.arraycopy(data, read, out, write, data.length - read);
+        return out;
+    }
+
+    /**
+     * Encodes a primitive value written the way the structure view shows it.
+     *
+     * @throws IllegalArgumentException if {@code text} is not a valid {@code type}
+     */
+    static byte[] encodePrimitive(String type, String text) {
+        try {
+            return switch (type) {
+                case "byte" -> new byte[] { Byte.parseByte(text) };
+                case "boolean" -> new byte[] { (byte) (parseBoolean(text) ? 1 : 0) };
+                case "char" -> bigEndian(parseChar(text), 2);
+                case "short" -> bigEndian(Short.parseShort(text), 2);
+                case "int" -> bigEndian(Integer.parseInt(text), 4);
+                case "float" -> bigEndian(Float.floatToRawIntBits(Float.parseFloat(text)), 4);
+                case "long" -> bigEndian(Long.parseLong(text), 8);
+                case "double" -> bigEndian(Double.doubleToRawLongBits(Double.parseDouble(text)), 8);
+                default -> throw new IllegalArgumentException("unknown primitive type " + type);
+            };
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid " + type + " value: " + text);
+        }
+    }
+
+    private static boolean parseBoolean(String text) {
+        return switch (text) {
+            case "true" -> true;
+            case "false" -> false;
+            default -> throw new NumberFormatException(text);
+        };
+    }
+
+    private static char parseChar(String text) {
+        if (text.length() < 3 || text.charAt(0) != '\'' || text.charAt(text.length() - 1) != '\'') {
+            throw new NumberFormatException(text);
+        }
+        String chars = unescape(text.substring(1, text.length() - 1));
+        if (chars.length() != 1) {
+            throw new NumberFormatException(text);
+        }
+        return chars.charAt(0);
+    }
+
+    private static byte[] bigEndian(long value, int width) {
+        byte[] bytes = new byte[width];
+        for (int i = width - 1; i >= 0; i--) {
+            bytes[i] = (byte) value;
+            value >>= 8;
+        }
+        return bytes;
+    }
+
+    /** Encodes a TC_STRING, or a TC_LONGSTRING once the modified UTF-8 form exceeds 65535 bytes. */
+    static byte[] encodeString(String value) {
+        int length = modifiedUtf8Length(value);
+        int header = stringHeaderLength(length);
+        byte[] encoded = new byte[header + length];
+        encoded[0] = header == 3 ? (byte) 0x74 : (byte) 0x7C;
+        for (int i = header - 1, shift = 0; i >= 1; i--, shift += 8) {
+            encoded[i] = (byte) ((long) length >> shift);
+        }
+        int p = header;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x0001 && c <= 0x007F) {
+                encoded[p++] = (byte) c;
+            } else if (c <= 0x07FF) {
+                encoded[p++] = (byte) (0xC0 | (c >> 6) & 0x1F);
+                encoded[p++] = (byte) (0x80 | c & 0x3F);
+            } else {
+                encoded[p++] = (byte) (0xE0 | (c >> 12) & 0x0F);
+                encoded[p++] = (byte) (0x80 | (c >> 6) & 0x3F);
+                encoded[p++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        return encoded;
+    }
+
+    /** Type code plus length prefix of an encoded string whose modified UTF-8 form has {@code length} bytes. */
+    static int stringHeaderLength(int length) {
+        return length > 0xFFFF ? 9 : 3;
+    }
+
+    static int modifiedUtf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            length += c >= 0x0001 && c <= 0x007F ? 1 : c <= 0x07FF ? 2 : 3;
+        }
+        return length;
+    }
+
+    private static String unquote(String literal) {
+        if (literal.length() < 2 || literal.charAt(0) != '"' || literal.charAt(literal.length() - 1) != '"') {
+            throw new IllegalArgumentException("string values must stay in double quotes: " + literal);
+        }
+        return unescape(literal.substring(1, literal.length() - 1));
+    }
+
+    /** Reverses the escaping applied by {@link StreamNode#quote(String)}. */
+    private static String unescape(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            if (++i >= s.length()) {
+                throw new IllegalArgumentException("dangling escape in " + s);
+            }
+            switch (s.charAt(i)) {
+                case '"' -> sb.append('"');
+                case '\'' -> sb.append('\'');
+                case '\\' -> sb.append('\\');
+                case 'n' -> sb.append('\n');
+                case 'r' -> sb.append('\r');
+                case 't' -> sb.append('\t');
+                case 'u' -> {
+                    if (i + 4 >= s.length()) {
+                        throw new IllegalArgumentException("incomplete unicode escape in " + s);
+                    }
+                    try {
+                        sb.append((char) Integer.parseInt(s.substring(i + 1, i + 5), 16));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("invalid unicode escape in " + s);
+                    }
+                    i += 4;
+                }
+                default -> throw new IllegalArgumentException("unknown escape \\" + s.charAt(i) + " in " + s);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String describe(StreamNode node) {
+        return String.format("%s at offset 0x%x", node.kind(), node.start());
+    }
+}
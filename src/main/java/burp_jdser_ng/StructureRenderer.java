@@ -0,0 +1,44 @@
+package burp_jdser_ng;
+
+import java.io.InterruptedIOException;
+
+/**
+ * Renders a {@link StreamNode} tree as indented text, one element per line
+ * prefixed with its offset in the message body.
+ */
+final class StructureRenderer {
+
+    private static final String INDENT = "  ";
+
+    private StructureRenderer() {
+    }
+
+    static String render(StreamNode root) throws InterruptedIOException {
+        StringBuilder sb = new StringBuilder(256);
+        append(sb, root, 0);
+        if (root.error() != null) {
+            sb.append("!! Parsing stopped ").append(root.error()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /** The line for {@code node} at {@code depth}, without a line terminator. */
+    static String line(StreamNode node, int depth) {
+        return linePrefix(node, depth) + node.describe();
+    }
+
+    /** Offset column and indentation that precede a node's description. */
+    static String linePrefix(StreamNode node, int depth) {
+        return String.format("%08x  ", node.start()) + INDENT.repeat(depth);
+    }
+
+    private static void append(StringBuilder sb, StreamNode node, int depth) throws InterruptedIOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("rendering interrupted");
+        }
+        sb.append(line(node, depth)).append('\n');
+        for (StreamNode child : node.children()) {
+            append(sb, child, depth + 1);
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package burp_jdser_ng;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import burp.api.montoya.core.ByteArray;
+import burp.api.montoya.http.handler.HttpHandler;
+import burp.api.montoya.http.handler.HttpRequestToBeSent;
+import burp.api.montoya.http.handler.HttpResponseReceived;
+import burp.api.montoya.http.handler.RequestToBeSentAction;
+import burp.api.montoya.http.handler.ResponseReceivedAction;
+import burp.api.montoya.http.message.requests.HttpRequest;
+
+import burp_jdser_ng.SerializedContentDetector.ByteRange;
+import burp_jdser_ng.StreamNode.Kind;
+
+/**
+ * Optional background inventory of the classes flowing through every Burp
+ * tool. The HTTP handler only runs the cheap detection and hands a copy of
+ * serialized bodies to a small worker pool through a bounded queue; when
+ * the queue, or the bytes it holds, is full the body is dropped and counted
+ * instead of holding up the request. Workers read the stream with the
+ * class-free {@link StreamParser}, so nothing from the target is loaded.
+ */
+final class TrafficInventory implements HttpHandler {
+
+    private static final int WORKERS = 2;
+    private static final int QUEUE_CAPACITY = 256;
+    private static final long MAX_QUEUED_BYTES = 32L * 1024 * 1024;
+    private static final long MAX_BODY_BYTES = 16L * 1024 * 1024;
+    private static final int MAX_NODES = 200_000;
+    private static final int MAX_CLASSES = 100_000;
+    private static final int MAX_ENDPOINTS_PER_CLASS = 20;
+
+    /** Package prefixes and classes known from public gadget chains, flagged to draw attention in the inventory. */
+    private static final List<String> GADGET_HINTS = List.of(
+            "org.apache.commons.collections.functors.",
+            "org.apache.commons.collections4.functors.",
+            "org.apache.commons.beanutils.BeanComparator",
+            "org.codehaus.groovy.runtime.",
+            "org.springframework.beans.factory.",
+            "org.springframework.aop.",
+            "com.sun.org.apache.xalan.internal.xsltc.trax.TemplatesImpl",
+            "org.apache.xalan.xsltc.trax.TemplatesImpl",
+            "sun.reflect.annotation.AnnotationInvocationHandler",
+            "javax.management.BadAttributeValueExpException",
+            "com.sun.rowset.JdbcRowSetImpl",
+            "com.mchange.v2.c3p0.",
+            "org.hibernate.",
+            "bsh.",
+            "clojure.",
+            "java.rmi.server.RemoteObjectInvocationHandler",
+            "java.rmi.server.UnicastRef");
+
+    private record Job(String endpoint, byte[] body) {
+    }
+
+    /** A class as described by the stream; the same name with another serialVersionUID is another row. */
+    record ClassKey(String name, long serialVersionUid) {
+    }
+
+    /** One inventory row: a snapshot of what is known about a class. */
+    record Row(ClassKey key, long count, List<String> endpoints, boolean gadgetHint) {
+    }
+
+    private static final class Entry {
+        final LongAdder count = new LongAdder();
+        final Set<String> endpoints = ConcurrentHashMap.newKeySet();
+    }
+
+    private final ThreadPoolExecutor workers;
+    private final Map<ClassKey, Entry> classes = new ConcurrentHashMap<>();
+    private final AtomicLong queuedBytes = new AtomicLong();
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder indexed = new LongAdder();
+    private final LongAdder malformed = new LongAdder();
+    private volatile boolean enabled;
+
+    TrafficInventory() {
+        AtomicInteger threadIds = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(WORKERS, WORKERS, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), r -> {
+                    Thread thread = new Thread(r, "JDSer-inventory-" + threadIds.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    void shutdown() {
+        enabled = false;
+        workers.shutdownNow();
+    }
+
+    @Override
+    public RequestToBeSentAction handleHttpRequestToBeSent(HttpRequestToBeSent request) {
+        if (enabled) {
+            offer(endpoint(request), request.body(), contentType(request.headerValue("Content-Type")));
+        }
+        return RequestToBeSentAction.continueWith(request);
+    }
+
+    @Override
+    public ResponseReceivedAction handleHttpResponseReceived(HttpResponseReceived response) {
+        if (enabled) {
+            HttpRequest request = response.initiatingRequest();
+            offer(request != null ? endpoint(request) + " (response)" : "(unknown request)", response.body(),
+                    contentType(response.headerValue("Content-Type")));
+        }
+        return ResponseReceivedAction.continueWith(response);
+    }
+
+    /** Runs on Burp's HTTP threads: detection only, never waits for the workers. */
+    private void offer(String endpoint, ByteArray body, String contentType) {
+        if (body == null || body.length() > MAX_BODY_BYTES
+                || !SerializedContentDetector.isSerialized(body, contentType,
+                        SerializedContentDetector::findSerializedRange)) {
+            return;
+        }
+        int length = body.length();
+        if (queuedBytes.addAndGet(length) > MAX_QUEUED_BYTES) {
+            queuedBytes.addAndGet(-length);
+            dropped.increment();
+            return;
+        }
+        Job job = new Job(endpoint, body.getBytes());
+        try {
+            workers.execute(() -> {
+                try {
+                    index(job);
+                } catch (RuntimeException | StackOverflowError e) {
+                    // a parser bug must not end the worker; count the message as malformed
+                    malformed.increment();
+                } finally {
+                    queuedBytes.addAndGet(-length);
+                }
+            });
+            queued.increment();
+        } catch (RejectedExecutionException e) {
+            queuedBytes.addAndGet(-length);
+            dropped.increment();
+        }
+    }
+
+    private void index(Job job) {
+        ByteRange range = SerializedContentDetector.findSerializedRange(job.body());
+        if (range == null) {
+            return;
+        }
+        StreamNode root = StreamParser.parse(job.body(), range.startInclusive(), range.endExclusive(),
+                StreamParser.DEFAULT_MAX_DEPTH, MAX_NODES);
+        if (root.error() != null) {
+            malformed.increment();
+        }
+        Set<ClassKey> seen = new HashSet<>();
+        Deque<StreamNode> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            StreamNode node = pending.pop();
+            if ((node.kind() == Kind.CLASS_DESC || node.kind() == Kind.PROXY_CLASS_DESC) && node.type() != null) {
+                seen.add(new ClassKey(node.type(), serialVersionUid(node)));
+            }
+            node.children().forEach(pending::push);
+        }
+        for (ClassKey key : seen) {
+            Entry entry = classes.get(key);
+            if (entry == null) {
+                if (classes.size() >= MAX_CLASSES) {
+                    continue;
+                }
+                entry = classes.computeIfAbsent(key, k -> new Entry());
+            }
+            entry.count.increment();
+            if (entry.endpoints.size() < MAX_ENDPOINTS_PER_CLASS) {
+                entry.endpoints.add(job.endpoint());
+            }
+        }
+        indexed.increment();
+    }
+
+    /** The serialVersionUID the parser put at the start of a class descriptor's value, or 0 for proxies. */
+    private static long serialVersionUid(StreamNode classDesc) {
+        String value = classDesc.value();
+        String prefix = "serialVersionUID=";
+        if (value == null || !value.startsWith(prefix)) {
+            return 0;
+        }
+        int end = value.indexOf(' ', prefix.length());
+        try {
+            return Long.parseLong(value.substring(prefix.length(), end < 0 ? value.length() : end));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static String endpoint(HttpRequest request) {
+        String host = request.httpService() != null ? request.httpService().host() : "";
+        return request.method() + " " + host + request.pathWithoutQuery();
+    }
+
+    private static String contentType(String header) {
+        return header != null ? header : "";
+    }
+
+    static boolean isGadgetHint(String className) {
+        for (String hint : GADGET_HINTS) {
+            if (className.startsWith(hint)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Inventory rows, most frequent first. */
+    List<Row> rows() {
+        List<Row> rows = new ArrayList<>(classes.size());
+        classes.forEach((key, entry) -> rows.add(new Row(key, entry.count.sum(),
+                entry.endpoints.stream().sorted().toList(), isGadgetHint(key.name()))));
+        rows.sort(Comparator.comparingLong(Row::count).reversed()
+                .thenComparing(row -> row.key().name()));
+        return rows;
+    }
+
+    void clear() {
+        classes.clear();
+    }
+
+    /** One-line summary of the queue and worker counters. */
+    String status() {
+        return String.format("Queued %d, indexed %d (%d malformed), dropped %d, waiting %d",
+                queued.sum(), indexed.sum(), malformed.sum(), dropped.sum(), workers.getQueue().size());
+    }
+
+    String toCsv() {
+        StringBuilder out = new StringBuilder("class,serial_version_uid,messages,gadget_hint,endpoints\n");
+        for (Row row : rows()) {
+            out.append(csv(row.key().name())).append(',').append(row.key().serialVersionUid()).append(',')
+                    .append(row.count()).append(',').append(row.gadgetHint()).append(',')
+                    .append(csv(String.join(";", row.endpoints()))).append('\n');
+        }
+        return out.toString();
+    }
+
+    private static String csv(String value) {
+        return value.indexOf(',') < 0 && value.indexOf('"') < 0 ? value : '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,333 @@
+package burp_jdser_ng;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Reads message bodies out of saved traffic for the batch converter:
+ * directories of raw bodies, Burp "Save items" XML exports and HAR files.
+ * Messages are handed to the sink one at a time as they are read, so a
+ * capture of any size is never held in memory as a whole.
+ */
+final class TrafficReader {
+
+    /** One body. {@code source} names the file and, for exports, the item and direction. */
+    record Message(String source, String url, byte[] body) {
+    }
+
+    interface Sink {
+        /** May block to hold the reader back while workers catch up. */
+        void accept(Message message) throws InterruptedException;
+
+        /** Called for bodies that are skipped, e.g. because they are larger than the limit. */
+        void skipped(String source, String reason);
+    }
+
+    private static final int SNIFF_BYTES = 512;
+    private static final byte[] CRLF = { '\r', '\n' };
+    private static final byte[] CRLF_CRLF = "\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LF_LF = "\n\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final long maxBodyBytes;
+    private final Sink sink;
+
+    TrafficReader(long maxBodyBytes, Sink sink) {
+        this.maxBodyBytes = maxBodyBytes;
+        this.sink = sink;
+    }
+
+    /** Reads {@code input}, a file or a directory walked recursively. */
+    void read(Path input) throws IOException, InterruptedException {
+        if (!Files.isDirectory(input)) {
+            readFile(input);
+            return;
+        }
+        try (Stream<Path> files = Files.walk(input)) {
+            Iterator<Path> it = files.filter(Files::isRegularFile).iterator();
+            while (it.hasNext()) {
+                readFile(it.next());
+            }
+        }
+    }
+
+    private void readFile(Path file) throws IOException, InterruptedException {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".har")) {
+            readHar(file);
+        } else if (name.endsWith(".xml") && isBurpExport(file)) {
+            readBurpExport(file);
+        } else if (Files.size(file) > maxBodyBytes) {
+            sink.skipped(file.toString(), "larger than " + maxBodyBytes + " bytes");
+        } else {
+            sink.accept(new Message(file.toString(), "", Files.readAllBytes(file)));
+        }
+    }
+
+    private static boolean isBurpExport(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            String head = new String(in.readNBytes(SNIFF_BYTES), StandardCharsets.ISO_8859_1);
+            return head.contains("<items");
+        }
+    }
+
+    /**
+     * Reads a Burp XML export with StAX. DTDs and external entities are not
+     * processed, so an export cannot make the converter read other files.
+     */
+    private void readBurpExport(Path file) throws IOException, InterruptedException {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            XMLStreamReader xml = factory.createXMLStreamReader(in);
+            try {
+                int item = 0;
+                String url = "";
+                while (xml.hasNext()) {
+                    if (xml.next() != XMLStreamConstants.START_ELEMENT) {
+                        continue;
+                    }
+                    switch (xml.getLocalName()) {
+                        case "item" -> {
+                            item++;
+                            url = "";
+                        }
+                        case "url" -> url = xml.getElementText();
+                        case "request", "response" -> {
+                            String source = file + "#" + item + ":" + xml.getLocalName();
+                            boolean base64 = "true".equals(xml.getAttributeValue(null, "base64"));
+                            String text = xml.getElementText();
+                            byte[] message = base64 ? decodeBase64(source, text)
+                                    : text.getBytes(StandardCharsets.ISO_8859_1);
+                            if (message != null) {
+                                accept(source, url, httpBody(message, maxBodyBytes));
+                            }
+                        }
+                        default -> {
+                            // host, method, status and the other item fields are not needed
+                        }
+                    }
+                }
+            } finally {
+                xml.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Malformed Burp export " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads a HAR file entry by entry. HAR keeps bodies as text, so a body
+     * without {@code "encoding": "base64"} is only byte-exact if the tool
+     * that wrote it kept every byte as one character.
+     */
+    private void readHar(Path file) throws IOException, InterruptedException {
+        try (JsonReader json = new JsonReader(
+                new InputStreamReader(new BufferedInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            json.beginObject();
+            while (json.hasNext()) {
+                if (!json.nextName().equals("log")) {
+                    json.skipValue();
+                    continue;
+                }
+                json.beginObject();
+                while (json.hasNext()) {
+                    if (!json.nextName().equals("entries")) {
+                        json.skipValue();
+                        continue;
+                    }
+                    json.beginArray();
+                    for (int entry = 1; json.hasNext(); entry++) {
+                        readHarEntry(json, file + "#" + entry);
+                    }
+                    json.endArray();
+                }
+                json.endObject();
+            }
+            json.endObject();
+        }
+    }
+
+    private void readHarEntry(JsonReader json, String source) throws IOException, InterruptedException {
+        String url = "";
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            if (name.equals("request")) {
+                HarBody request = new HarBody();
+                json.beginObject();
+                while (json.hasNext()) {
+                    String field = json.nextName();
+                    if (field.equals("url")) {
+                        url = json.nextString();
+                    } else if (field.equals("postData")) {
+                        request.read(json);
+                    } else {
+                        json.skipValue();
+                    }
+                }
+                json.endObject();
+                request.emit(source + ":request", url);
+            } else if (name.equals("response")) {
+                HarBody response = new HarBody();
+                json.beginObject();
+                while (json.hasNext()) {
+                    if (json.nextName().equals("content")) {
+                        response.read(json);
+                    } else {
+                        json.skipValue();
+                    }
+                }
+                json.endObject();
+                response.emit(source + ":response", url);
+            } else {
+                json.skipValue();
+            }
+        }
+        json.endObject();
+    }
+
+    /** The {@code text} and {@code encoding} of a HAR postData or content object. */
+    private final class HarBody {
+        String text;
+        String encoding;
+
+        void read(JsonReader json) throws IOException {
+            json.beginObject();
+            while (json.hasNext()) {
+                switch (json.nextName()) {
+                    case "text" -> text = json.nextString();
+                    case "encoding" -> encoding = json.nextString();
+                    default -> json.skipValue();
+                }
+            }
+            json.endObject();
+        }
+
+        void emit(String source, String url) throws InterruptedException {
+            if (text == null || text.isEmpty()) {
+                return;
+            }
+            byte[] body;
+            if ("base64".equalsIgnoreCase(encoding)) {
+                body = decodeBase64(source, text);
+                if (body == null) {
+                    return;
+                }
+            } else if (text.chars().allMatch(c -> c <= 0xFF)) {
+                body = text.getBytes(StandardCharsets.ISO_8859_1);
+            } else {
+                body = text.getBytes(StandardCharsets.UTF_8);
+            }
+            accept(source, url, body);
+        }
+    }
+
+    private byte[] decodeBase64(String source, String text) {
+        try {
+            return Base64.getMimeDecoder().decode(text);
+        } catch (IllegalArgumentException e) {
+            sink.skipped(source, "invalid base64: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void accept(String source, String url, byte[] body) throws InterruptedException {
+        if (body.length > maxBodyBytes) {
+            sink.skipped(source, "larger than " + maxBodyBytes + " bytes");
+        } else if (body.length > 0) {
+            sink.accept(new Message(source, url, body));
+        }
+    }
+
+    /**
+     * Body of a raw HTTP message, de-chunked and gunzipped as its headers
+     * say. A message without a header block is returned as it is. Inflating
+     * stops just past {@code maxBodyBytes}, so the caller can reject the body.
+     */
+    static byte[] httpBody(byte[] message, long maxBodyBytes) {
+        int headerEnd = indexOf(message, CRLF_CRLF, 0);
+        int bodyStart = headerEnd + 4;
+        if (headerEnd < 0) {
+            headerEnd = indexOf(message, LF_LF, 0);
+            bodyStart = headerEnd + 2;
+        }
+        if (headerEnd < 0) {
+            return message;
+        }
+        boolean chunked = false;
+        boolean gzip = false;
+        for (String line : new String(message, 0, headerEnd, StandardCharsets.ISO_8859_1).split("\r?\n")) {
+            String header = line.toLowerCase(Locale.ROOT);
+            if (header.startsWith("transfer-encoding:") && header.contains("chunked")) {
+                chunked = true;
+            } else if (header.startsWith("content-encoding:") && header.contains("gzip")) {
+                gzip = true;
+            }
+        }
+        byte[] body = Arrays.copyOfRange(message, bodyStart, message.length);
+        if (chunked) {
+            body = dechunk(body);
+        }
+        if (gzip) {
+            try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+                body = in.readNBytes((int) Math.min(maxBodyBytes + 1, Integer.MAX_VALUE - 8));
+            } catch (IOException e) {
+                // keep the body as captured; detection will simply not find a stream in it
+            }
+        }
+        return body;
+    }
+
+    /** Joins the chunks of a chunked body; a malformed body is returned as it is. */
+    private static byte[] dechunk(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length);
+        int pos = 0;
+        while (pos < body.length) {
+            int lineEnd = indexOf(body, CRLF, pos);
+            if (lineEnd < 0) {
+                return body;
+            }
+            String sizeText = new String(body, pos, lineEnd - pos, StandardCharsets.ISO_8859_1);
+            int extension = sizeText.indexOf(';');
+            int size;
+            try {
+                size = Integer.parseInt((extension < 0 ? sizeText : sizeText.substring(0, extension)).trim(), 16);
+            } catch (NumberFormatException e) {
+                return body;
+            }
+            pos = lineEnd + 2;
+            if (size == 0) {
+                return out.toByteArray();
+            }
+            if (size < 0 || size > body.length - pos) {
+                return body;
+            }
+            out.write(body, pos, size);
+            pos += size + 2;
+        }
+        return out.toByteArray();
+    }
+
+    private static int indexOf(byte[] data, byte[] pattern, int from) {
+        return ByteScanner.indexOf(data, pattern, from, data.length);
+    }
+}
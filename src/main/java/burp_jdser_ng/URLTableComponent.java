@@ -1,6 +1,7 @@
 package burp_jdser_ng;
 
 import java.awt.BorderLayout;
+import java.awt.FlowLayout;
 import java.awt.GridLayout;
 import java.awt.event.ActionEvent;
 import java.io.File;
@@ -9,18 +10,32 @@ import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
-import java.util.ArrayList;
+import java.nio.file.Path;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
 
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JComponent;
 import javax.swing.JFileChooser;
+import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JProgressBar;
 import javax.swing.JScrollPane;
+import javax.swing.JSpinner;
+import javax.swing.JSplitPane;
+import javax.swing.JTabbedPane;
 import javax.swing.JTable;
+import javax.swing.JTextField;
+import javax.swing.SpinnerNumberModel;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.table.DefaultTableModel;
 
 import burp.api.montoya.MontoyaApi;
@@ -28,23 +43,75 @@ import burp.api.montoya.MontoyaApi;
 public class URLTableComponent extends JPanel {
 
     private final MontoyaApi api;
-    private final ArrayList<URL> jarList = new ArrayList<>();
+    private final List<URL> jarList = new CopyOnWriteArrayList<>();
     private final Set<String> jarKeys = new HashSet<>();
+    private final List<Path> folderList = new CopyOnWriteArrayList<>();
 
     private final JTable classPathTable;
     private final DefaultTableModel classPathTableModel;
-    private final DefaultTableModel discoveredClassesLogTableModel;
-    private final DefaultTableModel outputLogTableModel;
-    private final DefaultTableModel errorLogTableModel;
+    private final LogTableModel discoveredClassesLogTableModel;
+    private final LogTableModel outputLogTableModel;
+    private final LogTableModel errorLogTableModel;
+    private final MetricsPanel metricsPanel;
+    private final InventoryPanel inventoryPanel;
+    private final ProfilePanel profilePanel;
+
+    private static final int MAX_DISCOVERED_CLASSES = 500_000;
+    private static final int MAX_LOG_ROWS = 10_000;
 
     public final JButton reloadButton = new JButton("Reload");
+    public final JTextField allowedPackagesField = new JTextField(24);
+    public final JCheckBox watchJarsCheckBox = new JCheckBox("Watch JARs for changes");
+    public final JCheckBox passiveIndexCheckBox = new JCheckBox("Index serialized traffic in the background");
+    private Runnable classPathChangedListener = () -> {
+    };
+    private final JProgressBar reloadProgress = new JProgressBar();
 
     private final String perfName = "jdser:paths";
+    private final String foldersPerfName = "jdser:folders";
+    private final String renderTimeoutPerfName = "jdser:renderTimeoutMs";
+    private final String allowedPackagesPerfName = "jdser:allowedPackages";
+    private final String watchJarsPerfName = "jdser:watchJars";
+    private final String intruderFieldPerfName = "jdser:intruderField";
+    private final String passiveIndexPerfName = "jdser:passiveIndex";
+    private final String maxDepthPerfName = "jdser:maxDepth";
+    private final String maxReferencesPerfName = "jdser:maxReferences";
+    private final String maxArrayLengthPerfName = "jdser:maxArrayLength";
+    private final String maxStreamMegabytesPerfName = "jdser:maxStreamMb";
+    private final String maxXmlMegabytesPerfName = "jdser:maxXmlMb";
+    private final String renderMemoryPerfName = "jdser:renderMemoryMb";
+
+    private final JTextField intruderField = new JTextField(24);
+    private volatile String intruderFieldPath = "";
+
+    private final JSpinner renderTimeoutSpinner = new JSpinner(new SpinnerNumberModel(
+            (int) DeserializationBudget.Limits.DEFAULT.timeMillis(), 100, 600_000, 500));
+    private final JSpinner maxDepthSpinner = new JSpinner(new SpinnerNumberModel(
+            (int) DeserializationBudget.Limits.DEFAULT.maxDepth(), 1, 100_000, 10));
+    private final JSpinner maxReferencesSpinner = new JSpinner(new SpinnerNumberModel(
+            (int) DeserializationBudget.Limits.DEFAULT.maxReferences(), 1, Integer.MAX_VALUE, 10_000));
+    private final JSpinner maxArrayLengthSpinner = new JSpinner(new SpinnerNumberModel(
+            (int) DeserializationBudget.Limits.DEFAULT.maxArrayLength(), 1, Integer.MAX_VALUE, 100_000));
+    private final JSpinner maxStreamMegabytesSpinner = new JSpinner(new SpinnerNumberModel(
+            (int) (DeserializationBudget.Limits.DEFAULT.maxStreamBytes() / (1024 * 1024)), 1, 2048, 1));
+    private volatile DeserializationBudget.Limits deserializationLimits = DeserializationBudget.Limits.DEFAULT;
+    private static final int DEFAULT_MAX_XML_MB = 256;
+    private final JSpinner maxXmlMegabytesSpinner = new JSpinner(
+            new SpinnerNumberModel(DEFAULT_MAX_XML_MB, 0, 2047, 16));
+    private volatile long maxXmlBytes = DEFAULT_MAX_XML_MB * 1024L * 1024;
+    static final int DEFAULT_RENDER_MEMORY_MB = 64;
+    public final JSpinner renderMemorySpinner = new JSpinner(
+            new SpinnerNumberModel(DEFAULT_RENDER_MEMORY_MB, 8, 16_384, 16));
+    private volatile long renderMemoryBytes = DEFAULT_RENDER_MEMORY_MB * 1024L * 1024;
+    private final JLabel renderMemoryLabel = new JLabel();
+    private Supplier<String> renderMemoryStatus = () -> "";
+    private final Timer renderMemoryTimer;
 
     private record ButtonDef(String text, java.util.function.Consumer<ActionEvent> action) {
     }
 
-    public URLTableComponent(MontoyaApi api) {
+    public URLTableComponent(MontoyaApi api, Metrics metrics, TrafficInventory inventory,
+            ClassPathProfiles profiles) {
         this.api = api;
         setLayout(new BorderLayout());
 
@@ -57,45 +124,259 @@ public class URLTableComponent extends JPanel {
                 new ButtonDef("Clear", e -> clearFiles()),
                 new ButtonDef("Reload", e -> reloadButton.doClick())));
 
-        discoveredClassesLogTableModel = new DefaultTableModel(new Object[] { "Discovered Classes" }, 0);
-        JPanel discoveredClassesPanel = createPanelWithTable(new JTable(discoveredClassesLogTableModel), List.of(
-                new ButtonDef("Clear", e -> clearTable(discoveredClassesLogTableModel))));
+        discoveredClassesLogTableModel = new LogTableModel("Discovered Classes", MAX_DISCOVERED_CLASSES);
+        JPanel discoveredClassesPanel = createPanelWithLog(discoveredClassesLogTableModel);
 
-        outputLogTableModel = new DefaultTableModel(new Object[] { "Output Log" }, 0);
-        JPanel outputLogPanel = createPanelWithTable(new JTable(outputLogTableModel), List.of(
-                new ButtonDef("Clear", e -> clearTable(outputLogTableModel))));
+        outputLogTableModel = new LogTableModel("Output Log", MAX_LOG_ROWS);
+        JPanel outputLogPanel = createPanelWithLog(outputLogTableModel);
 
-        errorLogTableModel = new DefaultTableModel(new Object[] { "Error Log" }, 0);
-        JPanel errorLogPanel = createPanelWithTable(new JTable(errorLogTableModel), List.of(
-                new ButtonDef("Clear", e -> clearTable(errorLogTableModel))));
+        errorLogTableModel = new LogTableModel("Error Log", MAX_LOG_ROWS);
+        JPanel errorLogPanel = createPanelWithLog(errorLogTableModel);
 
         JPanel mainPanel = new JPanel(new GridLayout(2, 2));
         mainPanel.add(classPathPanel);
         mainPanel.add(discoveredClassesPanel);
         mainPanel.add(outputLogPanel);
         mainPanel.add(errorLogPanel);
-        add(mainPanel, BorderLayout.CENTER);
+
+        metricsPanel = new MetricsPanel(metrics, this::addErrorLog);
+        inventoryPanel = new InventoryPanel(inventory, this::addErrorLog);
+        profilePanel = new ProfilePanel(profiles, api.persistence().preferences(), this::addErrorLog);
+        JTabbedPane statsTabs = new JTabbedPane();
+        statsTabs.addTab("Metrics", metricsPanel);
+        statsTabs.addTab("Traffic inventory", inventoryPanel);
+        statsTabs.addTab("Class path profiles", profilePanel);
+        JSplitPane splitPane = new JSplitPane(JSplitPane.VERTICAL_SPLIT, mainPanel, statsTabs);
+        splitPane.setResizeWeight(0.7);
+        add(splitPane, BorderLayout.CENTER);
+        add(createSettingsPanel(), BorderLayout.NORTH);
+
+        renderMemoryTimer = new Timer(1000, e -> {
+            if (isShowing()) {
+                renderMemoryLabel.setText(renderMemoryStatus.get());
+            }
+        });
+        renderMemoryTimer.start();
 
         loadPerfs();
     }
 
+    private JPanel createSettingsPanel() {
+        JPanel classPathSettings = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        classPathSettings.add(new JLabel("Allowed packages:"));
+        allowedPackagesField.setToolTipText(
+                "Comma separated package prefixes XStream may create in addition to the indexed classes");
+        allowedPackagesField.addActionListener(e -> api.persistence().preferences()
+                .setString(allowedPackagesPerfName, allowedPackagesField.getText().trim()));
+        classPathSettings.add(allowedPackagesField);
+        watchJarsCheckBox.addActionListener(e -> api.persistence().preferences()
+                .setBoolean(watchJarsPerfName, watchJarsCheckBox.isSelected()));
+        classPathSettings.add(watchJarsCheckBox);
+        reloadProgress.setStringPainted(true);
+        reloadProgress.setString("Class path idle");
+        classPathSettings.add(reloadProgress);
+
+        JPanel limitSettings = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        addSpinnerSetting(limitSettings, "Render time budget (ms):", renderTimeoutSpinner, renderTimeoutPerfName);
+        addSpinnerSetting(limitSettings, "Max depth:", maxDepthSpinner, maxDepthPerfName);
+        addSpinnerSetting(limitSettings, "Max references:", maxReferencesSpinner, maxReferencesPerfName);
+        addSpinnerSetting(limitSettings, "Max array length:", maxArrayLengthSpinner, maxArrayLengthPerfName);
+        addSpinnerSetting(limitSettings, "Max stream (MB):", maxStreamMegabytesSpinner, maxStreamMegabytesPerfName);
+        maxXmlMegabytesSpinner.setToolTipText("Largest XML rendering to produce; 0 for no limit");
+        addSpinnerSetting(limitSettings, "Max XML (MB):", maxXmlMegabytesSpinner, maxXmlMegabytesPerfName);
+        updateLimits();
+
+        JPanel injectionSettings = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        injectionSettings.add(new JLabel("Intruder target field:"));
+        intruderField.setToolTipText("Field path or name the JDSer payload processor injects into, "
+                + "e.g. $0.address.street or street; blank selects the first string");
+        intruderField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                updateIntruderField();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                updateIntruderField();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                updateIntruderField();
+            }
+        });
+        injectionSettings.add(intruderField);
+        passiveIndexCheckBox.setToolTipText("Lists the classes in serialized messages of every tool, "
+                + "without loading them; see the Traffic inventory tab");
+        passiveIndexCheckBox.addActionListener(e -> api.persistence().preferences()
+                .setBoolean(passiveIndexPerfName, passiveIndexCheckBox.isSelected()));
+        injectionSettings.add(passiveIndexCheckBox);
+
+        JPanel memorySettings = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        renderMemorySpinner.setToolTipText("Memory for all renderings, cached or shown in editors; "
+                + "cached renderings are evicted first");
+        addSpinnerSetting(memorySettings, "Render memory (MB):", renderMemorySpinner, renderMemoryPerfName);
+        memorySettings.add(renderMemoryLabel);
+        updateLimits();
+
+        JPanel panel = new JPanel(new GridLayout(4, 1));
+        panel.add(classPathSettings);
+        panel.add(limitSettings);
+        panel.add(injectionSettings);
+        panel.add(memorySettings);
+        return panel;
+    }
+
+    private void addSpinnerSetting(JPanel panel, String label, JSpinner spinner, String prefName) {
+        Integer stored = api.persistence().preferences().getInteger(prefName);
+        if (stored != null) {
+            SpinnerNumberModel model = (SpinnerNumberModel) spinner.getModel();
+            if ((Integer) model.getMinimum() <= stored && stored <= (Integer) model.getMaximum()) {
+                spinner.setValue(stored);
+            }
+        }
+        spinner.addChangeListener(e -> {
+            api.persistence().preferences().setInteger(prefName, ((Number) spinner.getValue()).intValue());
+            updateLimits();
+        });
+        panel.add(new JLabel(label));
+        panel.add(spinner);
+    }
+
+    private void updateLimits() {
+        deserializationLimits = new DeserializationBudget.Limits(
+                ((Number) maxDepthSpinner.getValue()).longValue(),
+                ((Number) maxReferencesSpinner.getValue()).longValue(),
+                ((Number) maxArrayLengthSpinner.getValue()).longValue(),
+                ((Number) maxStreamMegabytesSpinner.getValue()).longValue() * 1024 * 1024,
+                ((Number) renderTimeoutSpinner.getValue()).longValue());
+        maxXmlBytes = ((Number) maxXmlMegabytesSpinner.getValue()).longValue() * 1024 * 1024;
+        renderMemoryBytes = ((Number) renderMemorySpinner.getValue()).longValue() * 1024 * 1024;
+    }
+
+    /** Memory budget for all rendered content in bytes; safe to read from any thread. */
+    public long getRenderMemoryBytes() {
+        return renderMemoryBytes;
+    }
+
+    /** Supplies the render memory usage line, refreshed every second while the tab is visible. */
+    public void setRenderMemoryStatus(Supplier<String> status) {
+        this.renderMemoryStatus = status;
+    }
+
+    /** Largest XML rendering in bytes, 0 for no limit; safe to read from any thread. */
+    public long getMaxXmlBytes() {
+        return maxXmlBytes;
+    }
+
+    private void updateIntruderField() {
+        intruderFieldPath = intruderField.getText().trim();
+        api.persistence().preferences().setString(intruderFieldPerfName, intruderFieldPath);
+    }
+
+    /** Field the Intruder payload processor injects into, safe to read from any thread. */
+    public String getIntruderField() {
+        return intruderFieldPath;
+    }
+
+    /** Current limits, safe to read from any thread. */
+    public DeserializationBudget.Limits getDeserializationLimits() {
+        return deserializationLimits;
+    }
+
+    public void setReloadProgress(int done, int total) {
+        SwingUtilities.invokeLater(() -> {
+            reloadProgress.setMaximum(Math.max(total, 1));
+            reloadProgress.setValue(done);
+            reloadProgress.setString(done < total ? "Indexing JARs " + done + "/" + total
+                    : "Indexed " + total + " JAR(s)");
+        });
+    }
+
+    /** Called on the EDT whenever JARs are added or removed. */
+    public void setClassPathChangedListener(Runnable listener) {
+        this.classPathChangedListener = listener;
+    }
+
+    /** Called on the EDT whenever class path profiles are added, changed or removed. */
+    public void setProfilesChangedListener(Runnable listener) {
+        profilePanel.setProfilesChangedListener(listener);
+    }
+
+    public Set<String> getAllowedPackages() {
+        Set<String> prefixes = new HashSet<>();
+        for (String prefix : allowedPackagesField.getText().split(",")) {
+            prefix = prefix.trim();
+            if (prefix.endsWith(".*")) {
+                prefix = prefix.substring(0, prefix.length() - 2);
+            }
+            if (!prefix.isEmpty()) {
+                prefixes.add(prefix);
+            }
+        }
+        return prefixes;
+    }
+
+    public int getRenderTimeoutMillis() {
+        return (int) deserializationLimits.timeMillis();
+    }
+
     public void addDiscoveredClassLog(String log) {
-        SwingUtilities.invokeLater(() -> discoveredClassesLogTableModel.addRow(new Object[] { log }));
+        discoveredClassesLogTableModel.append(log);
+    }
+
+    public void setDiscoveredClasses(List<String> classNames) {
+        discoveredClassesLogTableModel.replaceAll(classNames);
     }
 
     public void clearDiscoveredClassesLog() {
-        SwingUtilities.invokeLater(() -> discoveredClassesLogTableModel.setRowCount(0));
+        discoveredClassesLogTableModel.replaceAll(List.of());
     }
 
     public void addOutputLog(String log) {
-        SwingUtilities.invokeLater(() -> outputLogTableModel.addRow(new Object[] { log }));
+        outputLogTableModel.append(log);
     }
 
     public void addErrorLog(String log) {
-        SwingUtilities.invokeLater(() -> errorLogTableModel.addRow(new Object[] { log }));
+        errorLogTableModel.append(log);
+    }
+
+    public void dispose() {
+        discoveredClassesLogTableModel.dispose();
+        outputLogTableModel.dispose();
+        errorLogTableModel.dispose();
+        metricsPanel.dispose();
+        inventoryPanel.dispose();
+        profilePanel.dispose();
+        renderMemoryTimer.stop();
     }
 
     private void loadPerfs() {
+        Boolean watchJars = api.persistence().preferences().getBoolean(watchJarsPerfName);
+        watchJarsCheckBox.setSelected(watchJars != null && watchJars);
+        Boolean passiveIndex = api.persistence().preferences().getBoolean(passiveIndexPerfName);
+        passiveIndexCheckBox.setSelected(passiveIndex != null && passiveIndex);
+        String intruderFieldValue = api.persistence().preferences().getString(intruderFieldPerfName);
+        if (intruderFieldValue != null) {
+            intruderField.setText(intruderFieldValue);
+        }
+        String allowedPackages = api.persistence().preferences().getString(allowedPackagesPerfName);
+        if (allowedPackages != null) {
+            allowedPackagesField.setText(allowedPackages);
+        }
+
+        String folders = api.persistence().preferences().getString(foldersPerfName);
+        if (folders != null && !folders.isEmpty()) {
+            for (String folderUri : folders.split(";")) {
+                try {
+                    folderList.add(Path.of(new URI(folderUri)));
+                } catch (URISyntaxException | IllegalArgumentException e) {
+                    addErrorLog("Skipped invalid folder: " + folderUri);
+                }
+            }
+        }
+
         String urls = api.persistence().preferences().getString(perfName);
         if (urls != null && !urls.isEmpty()) {
             for (String urlString : urls.split(";")) {
@@ -197,8 +478,16 @@ public class URLTableComponent extends JPanel {
             return;
         }
 
+        Path folderPath = folder.toPath().toAbsolutePath().normalize();
+        boolean newFolder = !folderList.contains(folderPath);
+        if (newFolder) {
+            folderList.add(folderPath);
+        }
         if (jarFiles.isEmpty()) {
             addOutputLog("No .jar files found in folder: " + folder.getAbsolutePath());
+            if (newFolder) {
+                persist();
+            }
             return;
         }
 
@@ -220,11 +509,34 @@ public class URLTableComponent extends JPanel {
 
         addOutputLog("Added " + addedCount + " JAR(s) from folder: " + folder.getAbsolutePath()
                 + (skippedCount > 0 ? " (skipped " + skippedCount + " duplicate(s))" : ""));
-        if (addedCount > 0) {
+        if (addedCount > 0 || newFolder) {
             persist();
         }
     }
 
+    /**
+     * Adds JARs that appeared in one of the configured folders. May be
+     * called from any thread.
+     */
+    public void addWatchedJars(Set<Path> jars) {
+        SwingUtilities.invokeLater(() -> {
+            int addedCount = 0;
+            for (Path jar : jars.stream().sorted().toList()) {
+                try {
+                    if (addJarUrlInternal(jar.toUri().toURL())) {
+                        addedCount++;
+                    }
+                } catch (MalformedURLException e) {
+                    addErrorLog("Failed to add JAR (" + jar + "): " + e.getMessage());
+                }
+            }
+            if (addedCount > 0) {
+                addOutputLog("Added " + addedCount + " new JAR(s) from watched folders");
+                persist();
+            }
+        });
+    }
+
     private void removeSelectedFile() {
         int selectedRow = classPathTable.getSelectedRow();
         if (selectedRow != -1) {
@@ -232,6 +544,9 @@ public class URLTableComponent extends JPanel {
             classPathTableModel.removeRow(selectedRow);
             jarList.remove(selectedRow);
             jarKeys.remove(urlKey(removed));
+            // a folder stops being watched once none of its JARs is left
+            folderList.removeIf(folder -> jarList.stream().noneMatch(jar -> isBelow(jar, folder))
+                    && isBelow(removed, folder));
             persist();
         }
     }
@@ -240,17 +555,27 @@ public class URLTableComponent extends JPanel {
         classPathTableModel.setRowCount(0);
         jarList.clear();
         jarKeys.clear();
+        folderList.clear();
         persist();
     }
 
-    private void clearTable(DefaultTableModel model) {
-        model.setRowCount(0);
+    private static boolean isBelow(URL jar, Path folder) {
+        try {
+            return Path.of(jar.toURI()).toAbsolutePath().normalize().startsWith(folder);
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return false;
+        }
     }
 
     public URL[] getURLs() {
         return jarList.toArray(URL[]::new);
     }
 
+    /** Folders added with "Add Folder"; new JARs in them are added when JARs are watched. */
+    public List<Path> getFolders() {
+        return List.copyOf(folderList);
+    }
+
     private void persist() {
         StringBuilder urls = new StringBuilder();
         for (URL url : jarList) {
@@ -258,12 +583,43 @@ public class URLTableComponent extends JPanel {
         }
         api.logging().logToOutput("Saving paths: " + urls);
         api.persistence().preferences().setString(perfName, urls.toString());
-        reloadButton.doClick();
+        StringBuilder folders = new StringBuilder();
+        for (Path folder : folderList) {
+            folders.append(folder.toUri()).append(";");
+        }
+        api.persistence().preferences().setString(foldersPerfName, folders.toString());
+        classPathChangedListener.run();
+    }
+
+    private JPanel createPanelWithLog(LogTableModel model) {
+        JTextField filterField = new JTextField(16);
+        filterField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                model.setFilter(filterField.getText());
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                model.setFilter(filterField.getText());
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                model.setFilter(filterField.getText());
+            }
+        });
+
+        return createPanelWithTable(new JTable(model), List.of(new ButtonDef("Clear", e -> model.clear())),
+                new JLabel("Filter:"), filterField);
     }
 
-    private JPanel createPanelWithTable(JTable table, List<ButtonDef> buttons) {
+    private JPanel createPanelWithTable(JTable table, List<ButtonDef> buttons, JComponent... extras) {
         JPanel panel = new JPanel(new BorderLayout());
         JPanel buttonPanel = new JPanel();
+        for (JComponent extra : extras) {
+            buttonPanel.add(extra);
+        }
         buttons.forEach(button -> addButton(buttonPanel, button.text(), button.action()));
         panel.add(table.getTableHeader(), BorderLayout.NORTH);
         panel.add(buttonPanel, BorderLayout.SOUTH);
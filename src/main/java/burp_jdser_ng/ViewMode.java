@@ -0,0 +1,20 @@
+package burp_jdser_ng;
+
+/** How the editor presents a serialized body. */
+enum ViewMode {
+    OBJECT("Object (XStream)"),
+    JSON("Object (compact JSON)"),
+    STRUCTURE("Stream structure"),
+    OUTLINE("Outline (large payloads)");
+
+    private final String label;
+
+    ViewMode(String label) {
+        this.label = label;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -0,0 +1,35 @@
+package burp_jdser_ng;
+
+import java.io.Writer;
+
+import com.thoughtworks.xstream.XStream;
+
+/** The original XML format. Errors surface as {@code XStreamException}. */
+final class XStreamCodec implements ObjectCodec {
+
+    private final XStream xstream;
+
+    XStreamCodec(XStream xstream) {
+        this.xstream = xstream;
+    }
+
+    @Override
+    public Metrics.Stage writeStage() {
+        return Metrics.Stage.TO_XML;
+    }
+
+    @Override
+    public Metrics.Stage readStage() {
+        return Metrics.Stage.FROM_XML;
+    }
+
+    @Override
+    public void write(Object object, Writer out) {
+        xstream.toXML(object, out);
+    }
+
+    @Override
+    public Object read(String text, DeserializationBudget budget) {
+        return xstream.fromXML(text);
+    }
+}